@@ -1,5 +1,6 @@
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  *
@@ -14,6 +15,24 @@ import java.util.List;
 
 public abstract class AbstractGenerate
 {
+    /** Where the trace events go; straight to standard output unless the driver chooses otherwise, through a sink shared rather than buffered per Generate. */
+    protected TraceSink sink = TextTraceSink.STANDARD_OUTPUT;
+
+    /**
+     * Choose where the trace events go.
+     *
+     * @param sink The sink to hand events to
+     */
+    public void setSink( TraceSink sink ) {
+        this.sink = sink;
+    }
+
+    /**
+     * @return the sink trace events go to, which should be flushed once checking is done
+     */
+    public TraceSink getSink() {
+        return sink;
+    }
 
     /**
     *
@@ -22,14 +41,7 @@ public abstract class AbstractGenerate
     **/
 
     public void insertTerminal( Token token ) {
-        String tt = Token.getName( token.symbol );
-        
-        if( (token.symbol == Token.identifier) || (token.symbol == Token.numberConstant) || (token.symbol == Token.stringConstant) )
-            tt += " '" + token.text + "'";
-
-        tt += " on line " + token.lineNumber;
-
-        System.out.println( "rggTOKEN " + tt );
+        sink.insertTerminal( token );
     } // end of method insertTerminal
 
     /**
@@ -42,13 +54,23 @@ public abstract class AbstractGenerate
         return null;
     }
 
+    /**
+     * As above, for the identifier a token holds; a generator may use the token's id to avoid hashing its text.
+     *
+     * @param token The token to match
+     * @return A variable object matching the token's identifier, or null if non exists.
+     */
+    public Variable getVariable( Token token ) {
+        return getVariable( token.text );
+    }
+
     /**
      * Add a variable to the current symbol list.
      * 
      * @param v The variable to add
      */
     public void addVariable( Variable v ) {
-        System.out.println( "rggDECL " + v );
+        sink.addVariable( v );
     }
 
     /**
@@ -57,7 +79,7 @@ public abstract class AbstractGenerate
      * @param v The variable to remove
      */
     public void removeVariable( Variable v ) {
-        System.out.println( "rggDROP " + v );
+        sink.removeVariable( v );
     }
 
     /**
@@ -66,7 +88,7 @@ public abstract class AbstractGenerate
     *
     **/
     public void commenceNonterminal( String name ) {
-        System.out.println( "rggBEGIN " + name );
+        sink.commenceNonterminal( name );
     } // end of method commenceNonterminal
 
     /**
@@ -75,7 +97,7 @@ public abstract class AbstractGenerate
     *
     **/
     public void finishNonterminal( String name ) {
-        System.out.println( "rggEND " + name );
+        sink.finishNonterminal( name );
     } // end of method finishNonterminal
 
     /**
@@ -85,11 +107,16 @@ public abstract class AbstractGenerate
     **/
     public void reportSuccess()
     {
-        System.out.println( "rggSUCCESS" );
+        sink.reportSuccess();
     } // end of method reportSuccess
 
 
     /** Report an error to the user. */
     public abstract void reportError( Token token, String explanatoryMessage ) throws CompilationException;
 
+    /** Report an error whose message is only built if something needs to show it. */
+    public void reportError( Token token, Supplier<String> explanatoryMessage ) throws CompilationException {
+        reportError( token, explanatoryMessage.get() );
+    }
+
 } // end of class "AbstractGenerate"
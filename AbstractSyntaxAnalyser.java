@@ -11,16 +11,23 @@
  **/
 
 import java.io.* ;
+import java.util.ArrayList ;
+import java.util.List ;
 
 public abstract class AbstractSyntaxAnalyser
 {
-	/** The lexical analyser to process input using. */
-	LexicalAnalyser lex ;
+	/** Where the tokens to process come from, usually a LexicalAnalyser. */
+	TokenSource lex ;
 	/** A cache of the token to be processed next. */
 	Token nextToken ;
 	/** A code generator, descendant of AbstractGenerate. */
 	Generate myGenerate = null;
 
+	/** Keep parsing after a syntax error, to report every error in one pass? */
+	boolean recoverErrors = false ;
+	/** The errors recovered from so far in this parse. */
+	List<CompilationException> errors = new ArrayList<CompilationException>() ;
+
 	/** Begin processing the first (top level) token.*/
 	public abstract void _statementPart_() throws IOException, CompilationException;
 
@@ -33,21 +40,140 @@ public abstract class AbstractSyntaxAnalyser
 	  @throws IOException in the event that the PrintStream object can no longer read.
 	*/
 	public void parse( PrintStream ps ) throws IOException
+	{
+		TraceSink trace = new TextTraceSink( System.out );
+		try {
+			parse( ps, trace );
+		} finally {
+			trace.flush();
+		}
+	} // end of method parse
+
+	/** Parses as above, handing the trace events to the given sink rather than standard output.
+	  The parse is recorded as a FileCheckEvent for Flight Recorder.
+
+	  @param ps The PrintStream object to write the result to.
+	  @param trace The sink the code generator hands its trace events to.
+	  @throws IOException in the event that the PrintStream object can no longer read.
+	*/
+	public void parse( PrintStream ps, TraceSink trace ) throws IOException
 	{
 		ps.println( lex.getFilename() );
-		myGenerate = new Generate();
+		if( (myGenerate == null) || (myGenerate.identifiers != lex.getIdentifiers()) )
+			myGenerate = new Generate( lex.getIdentifiers() );
+		else
+			myGenerate.reset();
+		myGenerate.setSink( trace );
+		myGenerate.setFileName( lex.getFilename() );
+		errors.clear() ;
+		FileCheckEvent event = new FileCheckEvent() ;
+		event.begin() ;
 		try {
 			nextToken = lex.getNextToken() ;
 			_statementPart_() ;
 			acceptTerminal(Token.eofSymbol) ;
+		}
+		catch( CompilationException ex )
+		{
+			errors.add( ex ) ;
+		}
+
+		if( errors.isEmpty() )
+		{
 			myGenerate.reportSuccess() ;
 			ps.println( "OK\n" );
 		}
-		catch( CompilationException ex )
+		else
 		{
 			ps.println( "Compilation Exception" );
-			ps.println( ex.toTraceString() );
+			for( CompilationException ex : errors )
+				ps.print( ex.toTraceString() );
+			ps.println();
 			ps.println( "STOP\n" );
 		}
+
+		event.end() ;
+		if( event.shouldCommit() )
+		{
+			event.file = lex.getFilename() ;
+			event.size = lex.getSourceSize() ;
+			event.tokens = myGenerate.getTerminals() ;
+			event.statements = myGenerate.getStatements() ;
+			event.verdict = errors.isEmpty() ? "OK" : "STOP" ;
+			event.errors = errors.size() ;
+			event.errorLine = errors.isEmpty() ? 0 : errors.get( 0 ).getLineNumber() ;
+			event.commit() ;
+		}
 	} // end of method parse
+
+	/** Points this analyser at another source of tokens, ready to parse it as if it
+	  had just been created for it.  The code generator is kept for the next parse
+	  if the source numbers identifiers in the same table, as a LexicalAnalyser that
+	  has been reset does.
+
+	  @param name The name to report the source under.
+	  @param lex The source of tokens.
+	*/
+	public void reset( String name, TokenSource lex )
+	{
+		this.lex = lex ;
+		nextToken = null ;
+	} // end of method reset
+
+	/** Points this analyser at another file, resetting its LexicalAnalyser rather than
+	  creating a new one if it has one.
+
+	  @param fileName The file to read.
+	  @throws IOException if the file cannot be opened.
+	*/
+	public void reset( String fileName ) throws IOException
+	{
+		if( lex instanceof LexicalAnalyser )
+		{
+			((LexicalAnalyser) lex).reset( fileName ) ;
+			reset( fileName, lex ) ;
+		}
+		else
+			reset( fileName, new LexicalAnalyser( fileName ) ) ;
+	} // end of method reset
+
+	/** The errors found by the last parse, empty if the program was accepted.
+
+	  @return the errors, in the order they were found.
+	*/
+	public List<CompilationException> getErrors()
+	{
+		return errors ;
+	} // end of method getErrors
+
+	/** Chooses whether a syntax error ends the parse, or is recorded and parsing
+	  carries on from the next statement so that one pass reports every error.
+
+	  @param recover true to carry on after errors.
+	*/
+	public void setRecovery( boolean recover )
+	{
+		recoverErrors = recover ;
+	} // end of method setRecovery
+
+	/** Recovers from a syntax error inside a statement, in panic mode: the error is
+	  recorded and tokens are skipped up to the next one a statement list can resume
+	  from, a ';', end, loop, if or the end of the file.  Rethrows the error when not
+	  recovering.
+
+	  @param ex The error to recover from.
+	  @throws IOException in the event that the input can no longer be read.
+	  @throws CompilationException ex itself, if errors are not being recovered from.
+	*/
+	protected void recover( CompilationException ex ) throws IOException, CompilationException
+	{
+		if( !recoverErrors )
+			throw ex ;
+
+		errors.add( ex ) ;
+		while( (nextToken.symbol != Token.semicolonSymbol) && (nextToken.symbol != Token.endSymbol) &&
+				(nextToken.symbol != Token.loopSymbol) && (nextToken.symbol != Token.ifSymbol) &&
+				(nextToken.symbol != Token.eofSymbol) )
+			nextToken = lex.getNextToken() ;
+	} // end of method recover
 } // end of class AbstractSyntaxAnalyser
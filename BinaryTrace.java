@@ -0,0 +1,233 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a trace written by {@link BinaryTraceSink}, handing its events one at a time to
+ * a {@link TextTraceSink} so that the text comes out exactly as it would have been
+ * written in the first place.
+ *
+ *   java BinaryTrace decode TRACE [OUT]   writes the text trace to OUT, or standard output
+ *   java BinaryTrace diff TRACE TRACE     compares two traces, exiting 0 if their text is
+ *                                         the same and 1 if not, after showing where
+ */
+public class BinaryTrace {
+    private final byte[] bytes;
+    private int position;
+
+    private final StringWriter text = new StringWriter();
+    private final TextTraceSink sink = new TextTraceSink( text );
+
+    /** The segment being read, innermost last; the whole trace is the first. */
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    /** Where a segment ends, and the identifiers, nonterminals and line it has seen. */
+    private static class Segment {
+        final int end;
+        final List<String> identifiers = new ArrayList<String>();
+        final List<String> nonterminals = new ArrayList<String>( Arrays.asList( BinaryTraceSink.NONTERMINALS ) );
+        int line;
+
+        Segment( int end ) {
+            this.end = end;
+        }
+    }
+
+    /**
+     * @param bytes A whole trace, as BinaryTraceSink wrote it
+     * @throws IOException if it does not start as one does
+     */
+    public BinaryTrace( byte[] bytes ) throws IOException {
+        this.bytes = bytes;
+        int header = BinaryTraceSink.MAGIC.length;
+        if( bytes.length <= header || !Arrays.equals( bytes, 0, header, BinaryTraceSink.MAGIC, 0, header ) )
+            throw new IOException( "not a binary trace" );
+        if( bytes[header] != BinaryTraceSink.VERSION )
+            throw new IOException( "binary trace version " + bytes[header] + " is not supported" );
+        position = header + 1;
+        segments.add( new Segment( bytes.length ) );
+    }
+
+    /**
+     * The text of the next event, or null at the end of the trace.
+     *
+     * @throws IOException if the trace is cut short or holds an unknown record
+     */
+    public String next() throws IOException {
+        Segment s = segments.get( segments.size() - 1 );
+        while( position == s.end ) {
+            if( segments.size() == 1 )
+                return null;
+            segments.remove( segments.size() - 1 );
+            s = segments.get( segments.size() - 1 );
+        }
+
+        int op = readByte();
+        switch( op ) {
+            case BinaryTraceSink.TOKEN:
+                int symbol = readVarint();
+                int delta = readVarint();
+                s.line += (delta >>> 1) ^ -(delta & 1);
+                String t = "";
+                if( symbol == Token.identifier )
+                    t = readReference( s.identifiers );
+                else if( (symbol == Token.numberConstant) || (symbol == Token.stringConstant) )
+                    t = readString();
+                sink.insertTerminal( new Token( symbol, t, s.line ) );
+                break;
+            case BinaryTraceSink.BEGIN:
+                sink.commenceNonterminal( readReference( s.nonterminals ) );
+                break;
+            case BinaryTraceSink.END:
+                sink.finishNonterminal( readReference( s.nonterminals ) );
+                break;
+            case BinaryTraceSink.DECL:
+                sink.addVariable( readVariable( s ) );
+                break;
+            case BinaryTraceSink.DROP:
+                sink.removeVariable( readVariable( s ) );
+                break;
+            case BinaryTraceSink.SUCCESS:
+                sink.reportSuccess();
+                break;
+            case BinaryTraceSink.ERROR:
+                sink.reportError( readString() );
+                break;
+            case BinaryTraceSink.LINE:
+                sink.println( readString() );
+                break;
+            case BinaryTraceSink.SEGMENT:
+                int length = readVarint();
+                if( length > s.end - position )
+                    throw new IOException( "segment at " + position + " runs past the end of the trace" );
+                segments.add( new Segment( position + length ) );
+                return next();
+            default:
+                throw new IOException( "unknown record " + op + " at " + (position - 1) );
+        }
+
+        sink.flush();
+        String event = text.toString();
+        text.getBuffer().setLength( 0 );
+        return event;
+    }
+
+    /**
+     * Writes the whole text trace.
+     *
+     * @param out Where to write it
+     * @throws IOException if the trace is damaged or cannot be written
+     */
+    public void decode( Writer out ) throws IOException {
+        String event;
+        while( (event = next()) != null )
+            out.write( event );
+        out.flush();
+    }
+
+    private Variable readVariable( Segment s ) throws IOException {
+        String name = readReference( s.identifiers );
+        int type = readVarint();
+        if( type >= Variable.Type.values().length )
+            throw new IOException( "unknown variable type " + type + " at " + (position - 1) );
+        return new Variable( name, Variable.Type.values()[type] );
+    }
+
+    private String readReference( List<String> names ) throws IOException {
+        int n = readVarint();
+        if( n == 0 ) {
+            String name = readString();
+            names.add( name );
+            return name;
+        }
+        if( n > names.size() )
+            throw new IOException( "unknown name " + (n - 1) + " at " + position );
+        return names.get( n - 1 );
+    }
+
+    private String readString() throws IOException {
+        int length = readVarint();
+        if( length > bytes.length - position )
+            throw new IOException( "string at " + position + " runs past the end of the trace" );
+        String s = new String( bytes, position, length, StandardCharsets.UTF_8 );
+        position += length;
+        return s;
+    }
+
+    private int readVarint() throws IOException {
+        int v = 0;
+        for( int shift = 0; shift < 35; shift += 7 ) {
+            int b = readByte();
+            v |= (b & 0x7F) << shift;
+            if( (b & 0x80) == 0 )
+                return v;
+        }
+        throw new IOException( "varint too long at " + position );
+    }
+
+    private int readByte() throws IOException {
+        if( position >= bytes.length )
+            throw new IOException( "trace cut short" );
+        return bytes[position++] & 0xFF;
+    }
+
+    /**
+     * Compares two traces: identical bytes are the same trace without decoding either,
+     * otherwise they are decoded side by side, as the same events may be split into
+     * segments differently, and the first event whose text differs is reported.
+     *
+     * @return true if the text of the two is the same
+     */
+    static boolean diff( byte[] a, byte[] b, Appendable report ) throws IOException {
+        if( Arrays.equals( a, b ) )
+            return true;
+
+        BinaryTrace left = new BinaryTrace( a );
+        BinaryTrace right = new BinaryTrace( b );
+        long events = 0;
+        long lines = 1;
+        for( ;; ) {
+            String l = left.next();
+            String r = right.next();
+            if( l == null && r == null )
+                return true;
+            events++;
+            if( l == null || r == null || !l.equals( r ) ) {
+                report.append( "first difference at event " + events + ", line " + lines + " of the text trace" ).append( System.lineSeparator() );
+                report.append( "< " + (l == null ? "(end of trace)" + System.lineSeparator() : l) );
+                report.append( "> " + (r == null ? "(end of trace)" + System.lineSeparator() : r) );
+                return false;
+            }
+            for( int i = 0; i < l.length(); i++ )
+                if( l.charAt( i ) == '\n' )
+                    lines++;
+        }
+    }
+
+    public static void main( String[] args ) throws IOException {
+        if( args.length >= 2 && args.length <= 3 && args[0].equals( "decode" ) ) {
+            BinaryTrace trace = new BinaryTrace( Files.readAllBytes( Paths.get( args[1] ) ) );
+            Writer out = new BufferedWriter( new OutputStreamWriter(
+                    args.length == 3 ? new FileOutputStream( args[2] ) : System.out ), 1 << 16 );
+            trace.decode( out );
+            if( args.length == 3 )
+                out.close();
+        } else if( args.length == 3 && args[0].equals( "diff" ) ) {
+            boolean same = diff( Files.readAllBytes( Paths.get( args[1] ) ), Files.readAllBytes( Paths.get( args[2] ) ), System.out );
+            System.out.flush();
+            System.exit( same ? 0 : 1 );
+        } else {
+            System.err.println( "usage: java BinaryTrace decode TRACE [OUT] | diff TRACE TRACE" );
+            System.exit( 2 );
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A trace sink that writes the rgg* trace in a compact binary form, from which
+ * {@link BinaryTrace} gives back the text trace byte for byte.
+ *
+ * The stream starts with the four bytes "RGGB" and a version byte, then holds one
+ * record per event: an opcode byte and its operands, numbers as unsigned LEB128 varints
+ * and strings as a varint length and UTF-8 bytes.
+ * <ul>
+ * <li>TOKEN: the symbol, then the change in line number since the last token, zigzag
+ * encoded; then for an identifier its name, and for a number or string constant its text.
+ * <li>BEGIN and END: a nonterminal.
+ * <li>DECL and DROP: a variable's name and the ordinal of its type.
+ * <li>SUCCESS; ERROR with the message; LINE with a line of driver output.
+ * <li>SEGMENT: a length and that many bytes holding the events of one file, recorded on
+ * its own by a sink from {@link #fork()}; it is read with names and lines of its own.
+ * </ul>
+ * Identifiers and nonterminals are numbered as they are first written: a reference is
+ * 0 followed by the name for a new one, otherwise its number plus one.  The nonterminals
+ * of the checked language come numbered already, in the order of {@link #NONTERMINALS}.
+ */
+public class BinaryTraceSink implements TraceSink {
+    static final byte[] MAGIC = { 'R', 'G', 'G', 'B' };
+    static final int VERSION = 1;
+
+    static final int TOKEN = 1;
+    static final int BEGIN = 2;
+    static final int END = 3;
+    static final int DECL = 4;
+    static final int DROP = 5;
+    static final int SUCCESS = 6;
+    static final int ERROR = 7;
+    static final int LINE = 8;
+    static final int SEGMENT = 9;
+
+    /** The nonterminals numbered before any is written. */
+    static final String[] NONTERMINALS = {
+        "StatementPart", "StatementList", "Statement", "AssignmentStatement", "IfStatement",
+        "WhileStatement", "ProcedureStatement", "UntilStatement", "ForStatement", "ArgumentList",
+        "Condition", "ConditionalOperator", "Expression", "Term", "Factor"
+    };
+
+    /** Bytes gathered before a write reaches the underlying stream. */
+    private static final int BATCH_SIZE = 1 << 16;
+
+    /** Where the trace goes, or null for a fork, which keeps it all in memory. */
+    private final OutputStream out;
+    private byte[] buffer = new byte[256];
+    private int size;
+
+    private final Map<String, Integer> identifiers = new HashMap<String, Integer>();
+    private final Map<String, Integer> nonterminals = new HashMap<String, Integer>();
+    private int lastLine;
+
+    /**
+     * @param out The stream to write the trace to
+     */
+    public BinaryTraceSink( OutputStream out ) {
+        this.out = out;
+        for( String name : NONTERMINALS )
+            nonterminals.put( name, nonterminals.size() );
+        if( out != null ) {
+            for( byte b : MAGIC )
+                writeByte( b );
+            writeByte( VERSION );
+        }
+    }
+
+    public void insertTerminal( Token token ) {
+        writeByte( TOKEN );
+        writeVarint( token.symbol );
+        int delta = token.lineNumber - lastLine;
+        writeVarint( (delta << 1) ^ (delta >> 31) );
+        lastLine = token.lineNumber;
+        if( token.symbol == Token.identifier )
+            writeReference( identifiers, token.text );
+        else if( (token.symbol == Token.numberConstant) || (token.symbol == Token.stringConstant) )
+            writeString( token.text );
+    }
+
+    public void commenceNonterminal( String name ) {
+        writeByte( BEGIN );
+        writeReference( nonterminals, name );
+    }
+
+    public void finishNonterminal( String name ) {
+        writeByte( END );
+        writeReference( nonterminals, name );
+    }
+
+    public void addVariable( Variable v ) {
+        writeByte( DECL );
+        writeReference( identifiers, v.identifier );
+        writeVarint( v.type.ordinal() );
+    }
+
+    public void removeVariable( Variable v ) {
+        writeByte( DROP );
+        writeReference( identifiers, v.identifier );
+        writeVarint( v.type.ordinal() );
+    }
+
+    public void reportSuccess() {
+        writeByte( SUCCESS );
+    }
+
+    public void reportError( String explanatoryMessage ) {
+        writeByte( ERROR );
+        writeString( explanatoryMessage );
+    }
+
+    public void println( String line ) {
+        writeByte( LINE );
+        writeString( line );
+    }
+
+    /** Buffers one file's trace in memory, as a segment of its own. */
+    public TraceSink fork() {
+        return new BinaryTraceSink( null );
+    }
+
+    public void join( TraceSink forked ) {
+        BinaryTraceSink segment = (BinaryTraceSink)forked;
+        writeByte( SEGMENT );
+        writeVarint( segment.size );
+        ensure( segment.size );
+        System.arraycopy( segment.buffer, 0, buffer, size, segment.size );
+        size += segment.size;
+        spill();
+    }
+
+    public void flush() {
+        if( out == null )
+            return;
+        try {
+            out.write( buffer, 0, size );
+            size = 0;
+            out.flush();
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    public void close() {
+        flush();
+    }
+
+    /** The bytes of a trace buffered by {@link #fork()}. */
+    public byte[] toByteArray() {
+        return Arrays.copyOf( buffer, size );
+    }
+
+    private void writeReference( Map<String, Integer> numbers, String name ) {
+        Integer n = numbers.get( name );
+        if( n != null ) {
+            writeVarint( n + 1 );
+            return;
+        }
+        numbers.put( name, numbers.size() );
+        writeVarint( 0 );
+        writeString( name );
+    }
+
+    private void writeString( String s ) {
+        byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+        writeVarint( bytes.length );
+        ensure( bytes.length );
+        System.arraycopy( bytes, 0, buffer, size, bytes.length );
+        size += bytes.length;
+        spill();
+    }
+
+    private void writeVarint( int v ) {
+        ensure( 5 );
+        while( (v & ~0x7F) != 0 ) {
+            buffer[size++] = (byte)((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[size++] = (byte)v;
+        spill();
+    }
+
+    private void writeByte( int b ) {
+        ensure( 1 );
+        buffer[size++] = (byte)b;
+        spill();
+    }
+
+    private void ensure( int n ) {
+        if( size + n > buffer.length )
+            buffer = Arrays.copyOf( buffer, Math.max( buffer.length * 2, size + n ) );
+    }
+
+    /** Writes the buffer out once a batch has gathered, unless this is a fork. */
+    private void spill() {
+        if( out == null || size < BATCH_SIZE )
+            return;
+        try {
+            out.write( buffer, 0, size );
+            size = 0;
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A thin client for CheckServer: sends each program named on the command line and
+ * prints the res.txt entries that come back, as Compile would write them.
+ *
+ *   java CheckClient [-socket PATH | -port N] [-trace] [-inline] program...
+ *
+ * -trace prints each program's rgg* trace to standard error, and -inline sends the
+ * programs' contents rather than their paths, for a server that cannot see the files.
+ * The exit status is 0 if every program was accepted, 1 if any was rejected and 2 if
+ * any could not be checked.
+ */
+public class CheckClient {
+    private final InputStream in;
+    private final OutputStream out;
+
+    /**
+     * @param channel A connection to the server
+     */
+    public CheckClient( SocketChannel channel ) {
+        this.in = new BufferedInputStream( Channels.newInputStream( channel ) );
+        this.out = Channels.newOutputStream( channel );
+    }
+
+    /** What the server said about one program. */
+    public static class Response {
+        /** Whether the program was accepted. */
+        public boolean ok;
+        /** The res.txt entry. */
+        public String res;
+        /** The trace, empty if it was not asked for. */
+        public String trace;
+    }
+
+    /**
+     * Checks a file under the server's root directory.
+     *
+     * @param path The file, relative to the server's -root
+     * @param trace Whether to return the trace as well
+     * @throws IOException if the server could not check it
+     */
+    public Response checkFile( String path, boolean trace ) throws IOException {
+        send( CheckServer.FILE + " " + flag( trace ) + " " + path + "\n", null );
+        return receive();
+    }
+
+    /**
+     * Checks source the server has not seen.
+     *
+     * @param name The name to report the source under
+     * @param source The source, in UTF-8
+     * @param trace Whether to return the trace as well
+     * @throws IOException if the server could not check it
+     */
+    public Response checkSource( String name, byte[] source, boolean trace ) throws IOException {
+        send( CheckServer.SOURCE + " " + flag( trace ) + " " + source.length + " " + name + "\n", source );
+        return receive();
+    }
+
+    private static String flag( boolean trace ) {
+        return trace ? CheckServer.TRACE : CheckServer.NO_TRACE;
+    }
+
+    private void send( String header, byte[] body ) throws IOException {
+        out.write( header.getBytes( StandardCharsets.UTF_8 ) );
+        if( body != null )
+            out.write( body );
+        out.flush();
+    }
+
+    private Response receive() throws IOException {
+        String header = CheckServer.readLine( in );
+        if( header == null )
+            throw new EOFException( "server closed the connection" );
+        if( header.startsWith( CheckServer.ERROR + " " ) )
+            throw new IOException( header.substring( CheckServer.ERROR.length() + 1 ) );
+
+        String[] words = header.split( " " );
+        if( words.length != 4 || !words[0].equals( CheckServer.RESULT ) )
+            throw new IOException( "unexpected response " + header );
+        Response r = new Response();
+        r.ok = words[1].equals( "OK" );
+        r.res = new String( readFully( Integer.parseInt( words[2] ) ), StandardCharsets.UTF_8 );
+        r.trace = new String( readFully( Integer.parseInt( words[3] ) ), StandardCharsets.UTF_8 );
+        return r;
+    }
+
+    private byte[] readFully( int length ) throws IOException {
+        byte[] bytes = in.readNBytes( length );
+        if( bytes.length < length )
+            throw new EOFException( "server closed the connection" );
+        return bytes;
+    }
+
+    public static void main( String[] args ) throws IOException {
+        String path = null;
+        int port = 7254;
+        boolean trace = false;
+        boolean inline = false;
+        int i = 0;
+        for( ; i < args.length && args[i].startsWith( "-" ); i++ ) {
+            if( args[i].equals( "-socket" ) && i + 1 < args.length )
+                path = args[++i];
+            else if( args[i].equals( "-port" ) && i + 1 < args.length )
+                port = Integer.parseInt( args[++i] );
+            else if( args[i].equals( "-trace" ) )
+                trace = true;
+            else if( args[i].equals( "-inline" ) )
+                inline = true;
+            else {
+                System.err.println( "unknown option " + args[i] );
+                System.exit( 2 );
+            }
+        }
+
+        int status = 0;
+        try( SocketChannel channel = (path != null) ? SocketChannel.open( StandardProtocolFamily.UNIX ) : SocketChannel.open() ) {
+            channel.connect( CheckServer.address( path, port ) );
+            CheckClient client = new CheckClient( channel );
+            for( ; i < args.length; i++ ) {
+                try {
+                    Response r = inline
+                            ? client.checkSource( args[i], Files.readAllBytes( Path.of( args[i] ) ), trace )
+                            : client.checkFile( args[i], trace );
+                    System.err.print( r.trace );
+                    System.out.print( r.res );
+                    if( !r.ok )
+                        status = Math.max( status, 1 );
+                } catch( IOException e ) {
+                    System.err.println( args[i] + ": " + e.getMessage() );
+                    status = 2;
+                    if( e instanceof EOFException )
+                        break;
+                }
+            }
+        }
+        System.exit( status );
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A resident checker, so a batch of checks pays for JVM startup and JIT warm-up once
+ * rather than once per run of Compile.
+ *
+ * Clients connect over a Unix-domain socket or a loopback TCP port and send requests,
+ * one after another on the same connection, each a header line in UTF-8:
+ *
+ *     FILE trace|notrace PATH                  check the file at PATH, relative to the root
+ *     SOURCE trace|notrace LENGTH NAME         check the LENGTH bytes of UTF-8 that follow,
+ *                                              reporting them under NAME
+ *
+ * Only files under the server's root directory can be checked; a PATH leading outside
+ * it, by .. or by a symbolic link, is refused.  Neither a file nor a SOURCE may be longer
+ * than {@link #MAX_SOURCE} bytes.
+ *
+ * Each is answered with
+ *
+ *     RESULT OK|STOP RESLENGTH TRACELENGTH     followed by the res.txt entry and the rgg*
+ *                                              trace (empty unless asked for), in UTF-8
+ *     ERROR MESSAGE                            if the request could not be carried out
+ *
+ * Every connection is served on a thread of its own, and every check gets its own
+ * analyser and so its own symbol table.
+ */
+public class CheckServer {
+    static final String FILE = "FILE";
+    static final String SOURCE = "SOURCE";
+    static final String TRACE = "trace";
+    static final String NO_TRACE = "notrace";
+    static final String RESULT = "RESULT";
+    static final String ERROR = "ERROR";
+
+    /** The longest header line accepted. */
+    private static final int MAX_LINE = 1 << 16;
+
+    /** The longest program accepted, in bytes, so one request cannot exhaust the heap. */
+    static final int MAX_SOURCE = 16 << 20;
+
+    private final ServerSocketChannel server;
+    private final Path root;
+    private final boolean tableParser;
+    private final boolean recover;
+
+    /**
+     * @param server The bound channel to accept connections on
+     * @param root The directory FILE requests are resolved against and confined to
+     * @param tableParser Whether to check with TableSyntaxAnalyser rather than SyntaxAnalyser
+     * @param recover Whether to report every syntax error in a program
+     * @throws IOException if the root does not exist
+     */
+    public CheckServer( ServerSocketChannel server, Path root, boolean tableParser, boolean recover ) throws IOException {
+        this.server = server;
+        this.root = root.toRealPath();
+        this.tableParser = tableParser;
+        this.recover = recover;
+    }
+
+    /**
+     * Accepts connections until the channel is closed.
+     */
+    public void serve() throws IOException {
+        ExecutorService executor = Compile.newVirtualThreadExecutor();
+        try {
+            while( server.isOpen() ) {
+                SocketChannel client = server.accept();
+                executor.execute( () -> handle( client ) );
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Answers one connection's requests until it is closed.
+     */
+    private void handle( SocketChannel client ) {
+        try( SocketChannel channel = client ) {
+            InputStream in = new BufferedInputStream( Channels.newInputStream( channel ) );
+            OutputStream out = Channels.newOutputStream( channel );
+            String header;
+            while( (header = readLine( in )) != null ) {
+                out.write( answer( header, in ) );
+                out.flush();
+            }
+        } catch( IOException e ) {
+            // the client went away; nothing is left to answer
+        }
+    }
+
+    /**
+     * Carries out one request.
+     *
+     * @param header The request's header line
+     * @param in The connection, positioned after the header
+     * @return the response
+     */
+    private byte[] answer( String header, InputStream in ) throws IOException {
+        String[] words = header.split( " ", 3 );
+        if( words.length < 3 || !(words[1].equals( TRACE ) || words[1].equals( NO_TRACE )) )
+            return error( "malformed request " + header );
+        boolean trace = words[1].equals( TRACE );
+
+        AbstractSyntaxAnalyser syn;
+        if( words[0].equals( FILE ) ) {
+            Path file;
+            try {
+                file = root.resolve( words[2] ).toRealPath();
+            } catch( NoSuchFileException | InvalidPathException e ) {
+                return error( "no such file " + words[2] );
+            }
+            if( !file.startsWith( root ) )
+                return error( "outside the root " + words[2] );
+            if( !Files.isRegularFile( file ) )
+                return error( "no such file " + words[2] );
+            if( Files.size( file ) > MAX_SOURCE )
+                return error( "longer than " + MAX_SOURCE + " bytes " + words[2] );
+            LexicalAnalyser lex = new LexicalAnalyser( words[2], ByteBuffer.wrap( Files.readAllBytes( file ) ) );
+            syn = tableParser ? new TableSyntaxAnalyser( words[2], lex ) : new SyntaxAnalyser( words[2], lex );
+        } else if( words[0].equals( SOURCE ) ) {
+            String[] rest = words[2].split( " ", 2 );
+            int length;
+            try {
+                length = Integer.parseInt( rest[0] );
+            } catch( NumberFormatException e ) {
+                return error( "malformed request " + header );
+            }
+            if( rest.length < 2 || length < 0 )
+                return error( "malformed request " + header );
+            if( length > MAX_SOURCE ) {
+                in.skipNBytes( length );
+                return error( "longer than " + MAX_SOURCE + " bytes " + rest[1] );
+            }
+            byte[] source = in.readNBytes( length );
+            if( source.length < length )
+                throw new EOFException();
+            LexicalAnalyser lex = new LexicalAnalyser( rest[1], ByteBuffer.wrap( source ), StandardCharsets.UTF_8 );
+            syn = tableParser ? new TableSyntaxAnalyser( rest[1], lex ) : new SyntaxAnalyser( rest[1], lex );
+        } else {
+            return error( "unknown request " + words[0] );
+        }
+        syn.setRecovery( recover );
+
+        ByteArrayOutputStream resBytes = new ByteArrayOutputStream();
+        PrintStream res = new PrintStream( resBytes, false, StandardCharsets.UTF_8 );
+        StringWriter traceText = new StringWriter();
+        try {
+            syn.parse( res, trace ? new TextTraceSink( traceText ) : NullTraceSink.INSTANCE );
+        } catch( RuntimeException e ) {
+            return error( "checking failed: " + e );
+        } catch( StackOverflowError e ) {
+            // a program nested deeper than this thread's stack; the connection carries on
+            return error( "nested too deeply" );
+        }
+        res.flush();
+
+        byte[] traceBytes = traceText.toString().getBytes( StandardCharsets.UTF_8 );
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        String verdict = syn.getErrors().isEmpty() ? "OK" : "STOP";
+        response.write( (RESULT + " " + verdict + " " + resBytes.size() + " " + traceBytes.length + "\n").getBytes( StandardCharsets.UTF_8 ) );
+        resBytes.writeTo( response );
+        response.write( traceBytes );
+        return response.toByteArray();
+    }
+
+    private static byte[] error( String message ) {
+        return (ERROR + " " + message.replace( '\n', ' ' ) + "\n").getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Reads a line ended by '\n', without the ending.
+     *
+     * @return the line, or null at the end of the stream
+     */
+    static String readLine( InputStream in ) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while( (b = in.read()) != '\n' ) {
+            if( b < 0 ) {
+                if( line.size() == 0 )
+                    return null;
+                throw new EOFException();
+            }
+            if( line.size() == MAX_LINE )
+                throw new IOException( "request line too long" );
+            line.write( b );
+        }
+        return line.toString( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * The address named on the command line: -socket PATH for a Unix-domain
+     * socket, or -port N for a TCP port on the loopback address.
+     *
+     * @param path The socket file, or null
+     * @param port The port, used when path is null
+     */
+    static SocketAddress address( String path, int port ) {
+        if( path != null )
+            return UnixDomainSocketAddress.of( path );
+        return new InetSocketAddress( InetAddress.getLoopbackAddress(), port );
+    }
+
+    /**
+     * Runs the server.
+     *
+     *   -socket PATH   listen on a Unix-domain socket at PATH
+     *   -port N        listen on loopback port N (default 7254)
+     *   -root DIR      check only files under DIR (default the working directory)
+     *   -parser KIND   recursive (default) or table
+     *   -recover       report every syntax error in a program
+     *   -stackless     raise syntax errors without capturing the JVM stack
+     */
+    public static void main( String[] args ) throws IOException {
+        String path = null;
+        int port = 7254;
+        Path root = Path.of( "" );
+        boolean table = false;
+        boolean recover = false;
+        for( int i = 0; i < args.length; i++ ) {
+            if( args[i].equals( "-socket" ) && i + 1 < args.length )
+                path = args[++i];
+            else if( args[i].equals( "-port" ) && i + 1 < args.length )
+                port = Integer.parseInt( args[++i] );
+            else if( args[i].equals( "-root" ) && i + 1 < args.length )
+                root = Path.of( args[++i] );
+            else if( args[i].equals( "-parser" ) && i + 1 < args.length && (args[i + 1].equals( "recursive" ) || args[i + 1].equals( "table" )) )
+                table = args[++i].equals( "table" );
+            else if( args[i].equals( "-recover" ) )
+                recover = true;
+            else if( args[i].equals( "-stackless" ) )
+                CompilationException.setStackTraces( false );
+            else {
+                System.err.println( "unknown option " + args[i] );
+                System.exit( 1 );
+            }
+        }
+
+        ServerSocketChannel server;
+        if( path != null ) {
+            Files.deleteIfExists( Path.of( path ) );
+            server = ServerSocketChannel.open( StandardProtocolFamily.UNIX );
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind( address( path, port ) );
+        System.err.println( "checking on " + server.getLocalAddress() );
+        new CheckServer( server, root, table, recover ).serve();
+    }
+}
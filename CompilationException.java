@@ -10,26 +10,68 @@
  *
  **/
 
+import java.util.function.Supplier;
+
 public class CompilationException extends Exception
 {
 	private static final int MAX_TRACE_DEPTH = 20;
 
+	/** Capture the JVM stack of each new exception?  Nothing here reads it, so it is only of use when debugging. */
+	private static volatile boolean stackTraces = true;
+
 	private final int lineNumber;
 
+	/** Renders the message on first use, for exceptions created with one not yet built; it is kept, so it is only ever rendered once. */
+	private Supplier<String> render;
+	private String message;
+
 	public CompilationException( String message, int lineNumber ) {
-		super( message );
+		super( message, null, true, stackTraces );
+		this.message = message;
 		this.lineNumber = lineNumber;
 	}
 
 	public CompilationException( String message, int lineNumber, CompilationException cause ) {
-		super( message, cause );
+		super( message, cause, true, stackTraces );
+		this.message = message;
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * An exception whose message is only built if it is asked for.
+	 *
+	 * @param message Builds the message
+	 * @param lineNumber The line the error was found on
+	 */
+	public CompilationException( Supplier<String> message, int lineNumber ) {
+		super( null, null, true, stackTraces );
+		this.render = message;
 		this.lineNumber = lineNumber;
 	}
 
+	/**
+	 * Chooses whether exceptions created from now on capture the stack they were thrown
+	 * from.  Leaving it out makes each syntax error far cheaper to raise in a deep parse.
+	 *
+	 * @param capture false for stackless exceptions
+	 */
+	public static void setStackTraces( boolean capture ) {
+		stackTraces = capture;
+	}
+
 	public int getLineNumber() {
 		return this.lineNumber;
 	}
 
+	@Override
+	public String getMessage() {
+		if( message == null && render != null ) {
+			message = render.get();
+			render = null;
+		}
+		return message;
+	}
+
 	public String toTraceString() {
 		StringBuffer buffer = new StringBuffer();
 		Throwable err = this;
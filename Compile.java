@@ -11,11 +11,81 @@
  **/
 
 import java.io.* ;
+import java.lang.management.ManagementFactory ;
+import java.lang.management.ThreadMXBean ;
+import java.nio.ByteBuffer ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.nio.file.StandardWatchEventKinds ;
+import java.nio.file.WatchEvent ;
+import java.nio.file.WatchKey ;
+import java.nio.file.WatchService ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+import java.util.TreeSet ;
+import java.util.concurrent.CompletableFuture ;
+import java.util.concurrent.CompletionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.ForkJoinPool ;
+import java.util.concurrent.ForkJoinTask ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.Semaphore ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.TimeoutException ;
+import java.util.concurrent.atomic.AtomicBoolean ;
 
 public class Compile {
 
 	public static String fileName;
 
+	/** The path of the programs checked, less their number. */
+	private static final String PREFIX = "Programs Folder" + File.separator + "program";
+
+	/** Number of files checked at the same time; 1 keeps the original sequential loop. */
+	private int threads = 1;
+	/** Most files in flight at once in virtual-thread mode; 0 leaves that mode off. */
+	private int virtualLimit = 0;
+	/** Milliseconds a single file may take in virtual-thread mode; 0 for no limit. */
+	private long timeout = 0;
+	/** Parse with the LL(1) table instead of the recursive descent SyntaxAnalyser? */
+	private boolean tableParser = false;
+	/** Keep running after the first pass, re-checking programs as they change? */
+	private boolean watch = false;
+	/** How long a burst of file events must be quiet for before it is acted on. */
+	private static final long SETTLE_MS = 50;
+	/** lex or parse to time that phase alone instead of checking, or null. */
+	private String bench = null;
+	/** Times each program is lexed or parsed in a benchmark run, after as many to warm up. */
+	private int rounds = 10;
+	/** Carry on after syntax errors, to report all of a file's errors at once? */
+	private boolean recover = false;
+	/** Lex each file whole into a TokenStream before parsing it? */
+	private boolean buffer = false;
+	/** Where the rgg* trace goes. */
+	private TraceSink sink = new TextTraceSink( System.out );
+	/** Where earlier results are kept, or null to check every file afresh. */
+	private File cacheDirectory = null;
+	/** The most the cached results may take up on disk. */
+	private long cacheBytes = 64L << 20;
+	private ResultCache cache = null;
+	/** Time the reading, lexing and parsing of each file, and each nonterminal? */
+	private boolean metrics = false;
+	/** Build fresh analysers for every file, rather than resetting each thread's own? */
+	private boolean fresh = false;
+	/** Each thread's syntax analyser, and with -buffer its lexical analyser, reset for every file it checks. */
+	private final ThreadLocal<AbstractSyntaxAnalyser> analysers = new ThreadLocal<AbstractSyntaxAnalyser>();
+	private final ThreadLocal<LexicalAnalyser> lexers = new ThreadLocal<LexicalAnalyser>();
+
+	/** The buffered outcome of checking one file, written out once every earlier file has been. */
+	static class Result {
+		/** The trace, starting with the blank line and rggFILE header. */
+		TraceSink trace;
+		/** The res.txt entry. */
+		byte[] res;
+	}
+
 	/**
 	 *
 	 * main
@@ -23,10 +93,10 @@ public class Compile {
 	 **/
 
 	private void go() throws IOException {
-		String prefix = "Programs Folder" + File.separator + "program";
+		String prefix = PREFIX;
 		int fileNumber = -1;
 		int exitFlag = 0;
-		System.out.println( "rggSTART" );
+		sink.println( "rggSTART" );
 		PrintStream out = null;
 		String outputFile = new String( "res.txt" );
 		boolean goon = true;
@@ -38,28 +108,628 @@ public class Compile {
 			System.exit(0);
 		}
 
+		if( cacheDirectory != null )
+			cache = new ResultCache( cacheDirectory, cacheBytes, recover ? "recover" : "stop" );
+
+		if( threads <= 0 )
+			threads = Runtime.getRuntime().availableProcessors();
+		if( watch ) {
+			goWatch( prefix, out );
+			goon = false;
+		} else if( virtualLimit > 0 ) {
+			goVirtual( prefix, out );
+			goon = false;
+		} else if( threads > 1 ) {
+			goParallel( prefix, out );
+			goon = false;
+		}
+
 		while( goon ) {
 			fileNumber++ ;
 			fileName = prefix + fileNumber;
 			goon = ((new File(fileName)).exists());
 			if( goon ) {
-				System.out.println();
-				System.out.println( "rggFILE " + fileName );
+				if( cache != null || metrics ) {
+					write( check( fileName ), out );
+				} else {
+					sink.println( "" );
+					sink.println( "rggFILE " + fileName );
 
-				SyntaxAnalyser syn = new SyntaxAnalyser(fileName) ;
-				syn.parse( out ) ;
-			} else System.out.println(fileName+" does not exist");
+					AbstractSyntaxAnalyser syn = analyser(fileName) ;
+					syn.parse( out, sink ) ;
+				}
+			} else sink.println(fileName+" does not exist");
 		}
 
-		System.out.println() ;
-		System.out.println("rggFINISH") ;
+		sink.println( "" ) ;
+		sink.println("rggFINISH") ;
+		sink.close();
+		if( cache != null )
+			cache.printStatistics( System.err );
 		out.flush();out.close();
 		System.exit(exitFlag) ;
 	} // end of main method
 
+	/**
+	 * Checks every program on a work-stealing pool, then writes the buffered results
+	 * in file order so res.txt and the trace match a sequential run byte for byte.
+	 *
+	 * @param prefix The path of the programs, less their number
+	 * @param out The res.txt stream
+	 */
+	private void goParallel( String prefix, PrintStream out ) throws IOException {
+		List<ForkJoinTask<Result>> pending = new ArrayList<ForkJoinTask<Result>>();
+		ForkJoinPool pool = new ForkJoinPool( threads );
+		int fileNumber = 0;
+
+		while( (new File(prefix + fileNumber)).exists() ) {
+			final String name = prefix + fileNumber;
+			pending.add( pool.submit( () -> check( name ) ) );
+			fileNumber++ ;
+		}
+
+		try {
+			for( ForkJoinTask<Result> task : pending ) {
+				write( task.join(), out );
+			}
+		} catch( UncheckedIOException e ) {
+			throw e.getCause();
+		} finally {
+			pool.shutdownNow();
+		}
+		sink.println( prefix + fileNumber + " does not exist" );
+	}
+
+	/**
+	 * Checks every program on its own virtual thread, at most virtualLimit at a time, so
+	 * slow blocking reads overlap without an OS thread each.  Results are written in file
+	 * order as soon as every earlier file is done; a file taking longer than the timeout
+	 * is reported as such rather than holding up the rest of the output.  Its thread is
+	 * interrupted, which the lexer notices at its next token, and its permit is given back
+	 * once it has stopped, so no more than virtualLimit checks ever run at once.
+	 *
+	 * @param prefix The path of the programs, less their number
+	 * @param out The res.txt stream
+	 */
+	private void goVirtual( String prefix, PrintStream out ) throws IOException {
+		List<CompletableFuture<Result>> pending = new ArrayList<CompletableFuture<Result>>();
+		ExecutorService executor = newVirtualThreadExecutor();
+		Semaphore permits = new Semaphore( virtualLimit );
+		int fileNumber = 0;
+		int written = 0;
+
+		try {
+			while( (new File(prefix + fileNumber)).exists() ) {
+				final String name = prefix + fileNumber;
+				permits.acquireUninterruptibly();
+				// whichever of the task and a timeout claims this first owns the permit: a
+				// task that starts holds it until it really ends, one that never will gives
+				// it back through the timeout
+				AtomicBoolean claimed = new AtomicBoolean();
+				CompletableFuture<Result> f = new CompletableFuture<Result>();
+				Future<?> task = executor.submit( () -> {
+					if( !claimed.compareAndSet( false, true ) )
+						return;
+					try {
+						f.complete( check( name ) );
+					} catch( Throwable e ) {
+						f.completeExceptionally( e );
+					} finally {
+						permits.release();
+					}
+				} );
+				if( timeout > 0 ) {
+					f.orTimeout( timeout, TimeUnit.MILLISECONDS ).whenComplete( (r, e) -> {
+						if( e instanceof TimeoutException ) {
+							task.cancel( true );
+							if( claimed.compareAndSet( false, true ) )
+								permits.release();
+						}
+					} );
+				}
+				pending.add( f );
+				fileNumber++ ;
+
+				// write whatever is already finished so results do not pile up
+				while( written < pending.size() && pending.get(written).isDone() ) {
+					write( finish( pending.get(written), prefix + written ), out );
+					pending.set( written++, null );
+				}
+			}
+			for( ; written < pending.size(); written++ )
+				write( finish( pending.get(written), prefix + written ), out );
+		} finally {
+			executor.shutdownNow();
+		}
+		sink.println( prefix + fileNumber + " does not exist" );
+	}
+
+	/**
+	 * Checks every program once, then watches the programs folder and re-checks only the
+	 * programs that are created, changed or deleted.  res.txt is rewritten from the first
+	 * entry whose length changed, or just the changed entries where none did, and the
+	 * trace of each re-checked program follows the first pass's.  Runs until interrupted.
+	 *
+	 * @param prefix The path of the programs, less their number
+	 * @param out The res.txt stream
+	 */
+	private void goWatch( String prefix, PrintStream out ) throws IOException {
+		List<byte[]> entries = new ArrayList<byte[]>();
+		while( (new File(prefix + entries.size())).exists() ) {
+			Result r = check( prefix + entries.size() );
+			write( r, out );
+			entries.add( r.res );
+		}
+		sink.println( prefix + entries.size() + " does not exist" );
+		out.flush();
+		sink.flush();
+
+		File programs = new File( prefix ).getAbsoluteFile();
+		Path folder = programs.getParentFile().toPath();
+		String stem = programs.getName();
+
+		try( WatchService watcher = folder.getFileSystem().newWatchService();
+				RandomAccessFile res = new RandomAccessFile( "res.txt", "rw" ) ) {
+			folder.register( watcher, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE );
+			for( ;; ) {
+				TreeSet<Integer> changed = new TreeSet<Integer>();
+				WatchKey key = watcher.take();
+				// editors save in several steps, so wait for the burst to settle
+				do {
+					for( WatchEvent<?> event : key.pollEvents() ) {
+						if( event.kind() == StandardWatchEventKinds.OVERFLOW ) {
+							for( int i = 0; i <= entries.size(); i++ )
+								changed.add( i );
+							continue;
+						}
+						int n = programNumber( stem, event.context().toString() );
+						if( n >= 0 && n <= entries.size() )
+							changed.add( n );
+					}
+					key.reset();
+				} while( (key = watcher.poll( SETTLE_MS, TimeUnit.MILLISECONDS )) != null );
+
+				if( !changed.isEmpty() )
+					recheck( prefix, changed, entries, res );
+			}
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Re-checks the given programs, and any that now follow the last one, then brings
+	 * res.txt up to date.
+	 */
+	private void recheck( String prefix, TreeSet<Integer> changed, List<byte[]> entries, RandomAccessFile res ) throws IOException {
+		List<byte[]> old = new ArrayList<byte[]>( entries );
+		for( int n : changed ) {
+			if( n > entries.size() )
+				break;
+			if( !(new File(prefix + n)).exists() ) {
+				// the run stops at the first missing program, and so does res.txt
+				entries.subList( n, entries.size() ).clear();
+				break;
+			}
+			Result r = check( prefix + n );
+			sink.join( r.trace );
+			if( n == entries.size() )
+				entries.add( r.res );
+			else
+				entries.set( n, r.res );
+		}
+		while( (new File(prefix + entries.size())).exists() ) {
+			Result r = check( prefix + entries.size() );
+			sink.join( r.trace );
+			entries.add( r.res );
+		}
+		sink.flush();
+
+		long offset = 0;
+		int first = 0;
+		while( first < entries.size() && first < old.size() && Arrays.equals( entries.get(first), old.get(first) ) )
+			offset += entries.get( first++ ).length;
+
+		boolean sameLengths = entries.size() == old.size();
+		for( int i = first; sameLengths && i < entries.size(); i++ )
+			sameLengths = entries.get( i ).length == old.get( i ).length;
+
+		for( int i = first; i < entries.size(); i++ ) {
+			byte[] entry = entries.get( i );
+			if( !sameLengths || !Arrays.equals( entry, old.get(i) ) ) {
+				res.seek( offset );
+				res.write( entry );
+			}
+			offset += entry.length;
+		}
+		res.setLength( offset );
+	}
+
+	/**
+	 * The number of a program from its file name, or -1 for any other file.
+	 */
+	private static int programNumber( String stem, String name ) {
+		if( !name.startsWith( stem ) || name.length() == stem.length() || name.length() > stem.length() + 9 )
+			return -1;
+		for( int i = stem.length(); i < name.length(); i++ )
+			if( !Character.isDigit( name.charAt(i) ) )
+				return -1;
+		return Integer.parseInt( name.substring( stem.length() ) );
+	}
+
+	/**
+	 * Waits for one file's result, turning a timeout into a result of its own.
+	 */
+	private Result finish( CompletableFuture<Result> f, String name ) throws IOException {
+		try {
+			return f.join();
+		} catch( CompletionException e ) {
+			if( e.getCause() instanceof UncheckedIOException )
+				throw ((UncheckedIOException)e.getCause()).getCause();
+			if( e.getCause() instanceof TimeoutException )
+				return timedOut( name );
+			throw e;
+		}
+	}
+
+	/** Writes one file's buffered trace and res.txt entry. */
+	private void write( Result r, PrintStream out ) throws IOException {
+		sink.join( r.trace );
+		out.write( r.res );
+	}
+
+	/**
+	 * The result recorded for a file that did not finish within the timeout.
+	 */
+	private Result timedOut( String name ) {
+		Result r = new Result();
+		r.trace = sink.fork();
+		r.trace.println( "" );
+		r.trace.println( "rggFILE " + name );
+		r.trace.println( "rggTIMEOUT " + timeout + " ms" );
+		r.res = (name + "\nTimed out after " + timeout + " ms\nSTOP\n\n").getBytes();
+		return r;
+	}
+
+	/**
+	 * A virtual-thread-per-task executor where the JDK has them (21 onwards), otherwise
+	 * an unbounded pool of platform threads; the semaphore in goVirtual bounds both.
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+		} catch( ReflectiveOperationException e ) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Checks a single file into memory, or takes its result from the cache if the file
+	 * has been checked before.
+	 *
+	 * @param name The file to check
+	 * @return the trace and res.txt entry for the file
+	 */
+	Result check( String name ) {
+		if( cache != null )
+			return cached( name );
+		return parse( name );
+	}
+
+	/**
+	 * Looks a file up in the cache, checking and storing it on a miss.  A hit replays the
+	 * stored trace, so only a run writing the text trace needs one to have been kept.
+	 */
+	private Result cached( String name ) {
+		TraceSink events = metrics ? ((MetricsTraceSink)sink).delegate() : sink;
+		boolean keepTrace = events instanceof TextTraceSink;
+		try {
+			String key = cache.key( name, Files.readAllBytes( new File(name).toPath() ) );
+			ResultCache.Entry e = cache.get( key, keepTrace );
+			if( e != null ) {
+				Result r = new Result();
+				r.trace = keepTrace ? new TextTraceSink( new StringWriter().append( e.trace ) ) : sink.fork();
+				r.res = e.res;
+				return r;
+			}
+
+			Result r = parse( name );
+			cache.put( key, r.res, keepTrace ? r.trace.toString() : null );
+			return r;
+		} catch( IOException e ) {
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * Checks a single file into memory.
+	 */
+	private Result parse( String name ) {
+		ByteArrayOutputStream resBytes = new ByteArrayOutputStream();
+		TraceSink trace = sink.fork();
+		PrintStream res = new PrintStream( resBytes );
+
+		trace.println( "" );
+		trace.println( "rggFILE " + name );
+		try {
+			if( metrics )
+				timed( name, res, (MetricsTraceSink)trace );
+			else
+				analyser( name ).parse( res, trace );
+		} catch( IOException e ) {
+			throw new UncheckedIOException( e );
+		}
+		res.flush();
+
+		Result r = new Result();
+		r.trace = trace;
+		r.res = resBytes.toByteArray();
+		return r;
+	}
+
+	/**
+	 * A syntax analyser of the kind chosen on the command line, over the given file.  Each
+	 * thread keeps the one it was last given and resets it for the next file, so the
+	 * scanner tables, buffers and symbol table are built once a thread; it is only good
+	 * until the thread asks for another.
+	 */
+	AbstractSyntaxAnalyser analyser( String name ) throws IOException {
+		if( buffer )
+			return analyser( name, TokenStream.read( lexer( name, null ) ).cursor() );
+
+		AbstractSyntaxAnalyser syn = fresh ? null : analysers.get();
+		if( syn == null )
+			syn = tableParser ? new TableSyntaxAnalyser( name ) : new SyntaxAnalyser( name );
+		else
+			syn.reset( name );
+		return keep( syn );
+	}
+
+	/**
+	 * As above, over tokens already lexed.
+	 */
+	private AbstractSyntaxAnalyser analyser( String name, TokenSource tokens ) {
+		AbstractSyntaxAnalyser syn = fresh ? null : analysers.get();
+		if( syn == null )
+			syn = tableParser ? new TableSyntaxAnalyser( name, tokens ) : new SyntaxAnalyser( name, tokens );
+		else
+			syn.reset( name, tokens );
+		return keep( syn );
+	}
+
+	/** Makes a syntax analyser this thread's own to reset next time, and sets it up. */
+	private AbstractSyntaxAnalyser keep( AbstractSyntaxAnalyser syn ) {
+		if( !fresh )
+			analysers.set( syn );
+		syn.setRecovery( recover );
+		return syn;
+	}
+
+	/**
+	 * A lexical analyser over the given file, reset from this thread's last one like the
+	 * syntax analysers above.
+	 *
+	 * @param name The file
+	 * @param source Its content, already read, or null to read it from the file
+	 */
+	private LexicalAnalyser lexer( String name, ByteBuffer source ) throws IOException {
+		LexicalAnalyser lex = fresh ? null : lexers.get();
+		if( lex == null ) {
+			lex = (source != null) ? new LexicalAnalyser( name, source ) : new LexicalAnalyser( name );
+			if( !fresh )
+				lexers.set( lex );
+		} else if( source != null )
+			lex.reset( name, source );
+		else
+			lex.reset( name );
+		return lex;
+	}
+
+	/**
+	 * Checks a single file in three phases timed apart: reading it whole, lexing that
+	 * into a TokenStream, and parsing the stream.  The nonterminals are timed by the sink.
+	 */
+	private void timed( String name, PrintStream res, MetricsTraceSink trace ) throws IOException {
+		Metrics m = trace.metrics();
+		long start = System.nanoTime();
+		byte[] source = Files.readAllBytes( new File(name).toPath() );
+		long read = System.nanoTime();
+		TokenStream tokens = TokenStream.read( lexer( name, ByteBuffer.wrap( source ) ) );
+		long lexed = System.nanoTime();
+		analyser( name, tokens.cursor() ).parse( res, trace );
+		long parsed = System.nanoTime();
+
+		m.countFile();
+		m.record( Metrics.Phase.READ, read - start );
+		m.record( Metrics.Phase.LEX, lexed - read );
+		m.record( Metrics.Phase.PARSE, parsed - lexed );
+	}
+
+	/**
+	 * Reads the command line options.
+	 *
+	 *   -threads N   check N files at a time (default 1, sequential; 0 for one per processor)
+	 *   -virtual N   check each file on its own virtual thread, at most N in flight
+	 *   -timeout MS  give up on a file after MS milliseconds (-virtual only)
+	 *   -trace KIND  text (default) writes the rgg* trace, binary writes it compactly, count prints only event totals, none drops it
+	 *   -mmap BYTES  memory-map source files of at least BYTES bytes (default 1MB)
+	 *   -parser KIND recursive (default) for SyntaxAnalyser, table for TableSyntaxAnalyser
+	 *   -recover     report every syntax error in a file rather than stopping at the first
+	 *   -stackless   raise syntax errors without capturing the JVM stack
+	 *   -buffer      lex each file whole into a compact TokenStream, then parse that
+	 *   -reuse       have the lexer hand out one Token, overwritten for each new token
+	 *   -fresh       build new analysers for every file instead of resetting each thread's
+	 *   -metrics     time reading, lexing and parsing each file, and each nonterminal, and print a summary at the end
+	 *   -watch       after the first pass, keep re-checking programs as they change
+	 *   -bench KIND  time lexing (lex) or parsing without a trace (parse) instead of checking
+	 *   -rounds N    how many times -bench goes over the programs (default 10)
+	 *   -cache DIR   keep results in DIR and reuse them for files that have not changed;
+	 *                not with -metrics, -trace count or -trace binary
+	 *   -cachesize BYTES  the most the cache may take up on disk (default 64MB)
+	 **/
+	private void options( String args[] ) {
+		for( int i = 0; i < args.length; i++ ) {
+			if( args[i].equals("-threads") && i + 1 < args.length )
+				threads = Integer.parseInt( args[++i] );
+			else if( args[i].equals("-virtual") && i + 1 < args.length )
+				virtualLimit = Integer.parseInt( args[++i] );
+			else if( args[i].equals("-timeout") && i + 1 < args.length )
+				timeout = Long.parseLong( args[++i] );
+			else if( args[i].equals("-trace") && i + 1 < args.length )
+				sink = traceSink( args[++i] );
+			else if( args[i].equals("-mmap") && i + 1 < args.length )
+				LexicalAnalyser.setMappedThreshold( Long.parseLong( args[++i] ) );
+			else if( args[i].equals("-recover") )
+				recover = true;
+			else if( args[i].equals("-buffer") )
+				buffer = true;
+			else if( args[i].equals("-reuse") )
+				LexicalAnalyser.setTokenReuse( true );
+			else if( args[i].equals("-fresh") )
+				fresh = true;
+			else if( args[i].equals("-metrics") )
+				metrics = true;
+			else if( args[i].equals("-cache") && i + 1 < args.length )
+				cacheDirectory = new File( args[++i] );
+			else if( args[i].equals("-cachesize") && i + 1 < args.length )
+				cacheBytes = Long.parseLong( args[++i] );
+			else if( args[i].equals("-bench") && i + 1 < args.length && (args[i + 1].equals("lex") || args[i + 1].equals("parse")) )
+				bench = args[++i];
+			else if( args[i].equals("-rounds") && i + 1 < args.length )
+				rounds = Integer.parseInt( args[++i] );
+			else if( args[i].equals("-watch") )
+				watch = true;
+			else if( args[i].equals("-stackless") )
+				CompilationException.setStackTraces( false );
+			else if( args[i].equals("-parser") && i + 1 < args.length )
+				tableParser = parserKind( args[++i] );
+			else {
+				System.err.println( "unknown option " + args[i] );
+				System.exit(1);
+			}
+		}
+		// a cache hit can only replay a text trace; counts, timings and records would miss it
+		if( cacheDirectory != null && (metrics || sink instanceof CountingTraceSink || sink instanceof BinaryTraceSink) ) {
+			System.err.println( "-cache cannot be used with -metrics, -trace count or -trace binary" );
+			System.exit(1);
+		}
+		if( metrics )
+			sink = new MetricsTraceSink( sink, (sink instanceof BinaryTraceSink) ? System.err : System.out );
+	}
+
+	/**
+	 * The trace sink named on the command line.
+	 */
+	private static TraceSink traceSink( String kind ) {
+		if( kind.equals("text") )
+			return new TextTraceSink( System.out );
+		if( kind.equals("count") )
+			return new CountingTraceSink( System.out );
+		if( kind.equals("none") )
+			return NullTraceSink.INSTANCE;
+		if( kind.equals("binary") )
+			return new BinaryTraceSink( System.out );
+		System.err.println( "unknown trace kind " + kind );
+		System.exit(1);
+		return null;
+	}
+
+	/**
+	 * Whether the parser named on the command line is the table-driven one.
+	 */
+	private static boolean parserKind( String kind ) {
+		if( !kind.equals("recursive") && !kind.equals("table") ) {
+			System.err.println( "unknown parser kind " + kind );
+			System.exit(1);
+		}
+		return kind.equals("table");
+	}
+
+	/**
+	 * Times one phase over every program: lex drains getNextToken() to the end of each
+	 * file, or with -buffer lexes it into a TokenStream, parse runs the chosen syntax analyser with the trace dropped.  A round over
+	 * all of them warms up first; the rest are measured and reported as tokens, bytes and
+	 * files a second, with the bytes allocated on the way.  Neither res.txt nor the trace
+	 * is written.
+	 */
+	private void bench() throws IOException {
+		List<String> files = new ArrayList<String>();
+		long bytes = 0;
+		for( int n = 0; (new File(PREFIX + n)).exists(); n++ ) {
+			files.add( PREFIX + n );
+			bytes += (new File(PREFIX + n)).length();
+		}
+		long tokens = 0;
+		for( String name : files )
+			tokens += lex( name );
+
+		PrintStream discard = new PrintStream( OutputStream.nullOutputStream() );
+		for( int pass = 0; pass < 2; pass++ ) {
+			int times = (pass == 0) ? 1 : rounds;
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			for( int r = 0; r < times; r++ ) {
+				for( String name : files ) {
+					if( bench.equals("lex") )
+						lex( name );
+					else
+						analyser( name ).parse( discard, NullTraceSink.INSTANCE );
+				}
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			allocated = allocatedBytes() - allocated;
+			if( pass == 0 )
+				continue;
+
+			System.out.println( bench + ": " + files.size() + " files, " + bytes + " bytes, " + tokens + " tokens, "
+					+ rounds + " rounds in " + String.format( "%.3f", seconds ) + " s" );
+			System.out.println( String.format( "%12.0f tokens/s %12.0f bytes/s %10.1f files/s",
+					tokens * rounds / seconds, bytes * rounds / seconds, files.size() * rounds / seconds ) );
+			if( allocated >= 0 )
+				System.out.println( String.format( "%12.1f MB/s allocated, %.1f bytes a token",
+						allocated / seconds / 1e6, (double)allocated / (tokens * rounds) ) );
+		}
+	}
+
+	/**
+	 * Reads every token of a file.
+	 *
+	 * @return the number of tokens, counting the end of file
+	 */
+	private long lex( String name ) throws IOException {
+		LexicalAnalyser lex = lexer( name, null );
+		if( buffer )
+			return TokenStream.read( lex ).size();
+		long tokens = 1;
+		while( lex.getNextToken().symbol != Token.eofSymbol )
+			tokens++;
+		return tokens;
+	}
+
+	/**
+	 * The bytes allocated by this thread so far, or -1 where the JVM cannot tell.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if( threads instanceof com.sun.management.ThreadMXBean )
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes( Thread.currentThread().getId() );
+		return -1;
+	}
+
 	public static void main(String args[]) throws IOException {
 		Compile c = new Compile();
-		c.go();
+		c.options( args );
+		if( c.bench != null ) {
+			c.bench();
+			return;
+		}
+		try {
+			c.go();
+		} finally {
+			// keep the trace of everything checked before anything went wrong
+			c.sink.flush();
+		}
 	};
 
 } // end of class Compile
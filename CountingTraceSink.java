@@ -0,0 +1,79 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A trace sink that only counts events, printing the totals when the run ends.
+ * It is safe to share between threads.
+ */
+public class CountingTraceSink implements TraceSink {
+    private final PrintStream out;
+
+    final LongAdder tokens = new LongAdder();
+    final LongAdder nonterminals = new LongAdder();
+    final LongAdder declarations = new LongAdder();
+    final LongAdder drops = new LongAdder();
+    final LongAdder successes = new LongAdder();
+    final LongAdder errors = new LongAdder();
+
+    /**
+     * @param out Where the totals are printed on close
+     */
+    public CountingTraceSink( PrintStream out ) {
+        this.out = out;
+    }
+
+    public void insertTerminal( Token token ) {
+        tokens.increment();
+    }
+
+    public void commenceNonterminal( String name ) {
+        nonterminals.increment();
+    }
+
+    public void finishNonterminal( String name ) { }
+
+    public void addVariable( Variable v ) {
+        declarations.increment();
+    }
+
+    public void removeVariable( Variable v ) {
+        drops.increment();
+    }
+
+    public void reportSuccess() {
+        successes.increment();
+    }
+
+    public void reportError( String explanatoryMessage ) {
+        errors.increment();
+    }
+
+    public void reportError( Supplier<String> explanatoryMessage ) {
+        errors.increment();
+    }
+
+    public void println( String line ) { }
+
+    public TraceSink fork() {
+        return this;
+    }
+
+    public void join( TraceSink forked ) { }
+
+    public void flush() {
+        out.flush();
+    }
+
+    public void close() {
+        out.println( this );
+        out.flush();
+    }
+
+    @Override
+    public String toString() {
+        return "rggCOUNT tokens " + tokens.sum() + ", nonterminals " + nonterminals.sum()
+                + ", declarations " + declarations.sum() + ", drops " + drops.sum()
+                + ", successes " + successes.sum() + ", errors " + errors.sum();
+    }
+}
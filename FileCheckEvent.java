@@ -0,0 +1,42 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for each program checked, spanning the whole parse, so a
+ * recording shows which programs the time, the garbage and the pauses went on.
+ */
+@Name( "checker.FileCheck" )
+@Label( "File Check" )
+@Category( "Syntax Checker" )
+@Description( "A program checked by AbstractSyntaxAnalyser.parse" )
+public class FileCheckEvent extends Event {
+    @Label( "File" )
+    String file;
+
+    @Label( "Source Size" )
+    @Description( "Bytes of source, -1 if it was given as characters or the tokens came from somewhere that cannot tell" )
+    @DataAmount( DataAmount.BYTES )
+    long size;
+
+    @Label( "Tokens" )
+    @Description( "Terminals the parser accepted" )
+    int tokens;
+
+    @Label( "Statements" )
+    int statements;
+
+    @Label( "Verdict" )
+    @Description( "OK if the program was accepted, STOP if not, as in res.txt" )
+    String verdict;
+
+    @Label( "Errors" )
+    int errors;
+
+    @Label( "Error Line" )
+    @Description( "The line of the first syntax error, 0 if there was none" )
+    int errorLine;
+}
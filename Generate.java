@@ -1,4 +1,5 @@
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 /**
  * Generate class for Compiler
@@ -7,7 +8,128 @@ import java.util.HashMap;
  */
 
 public class Generate extends AbstractGenerate {
-    HashMap<String, Variable> variables = new HashMap<String, Variable>();
+    /** Numbers the identifiers, as the tokens being checked number them */
+    final Identifiers identifiers;
+    /** The variables declared, indexed by identifier number; null where none is */
+    Variable[] variables = new Variable[64];
+
+    /** The numbers of the identifiers declared inside open scopes, an undo log for leaving them */
+    private int[] declared = new int[16];
+    private int declaredCount;
+    /** Where in declared each open scope's declarations start, innermost last */
+    private int[] scopes = new int[8];
+    private int depth;
+
+    /** The name of the program being checked, for the events recorded about it */
+    String fileName;
+    /** The terminals accepted and statements begun in the program so far */
+    private int terminals;
+    private int statements;
+    /** The nonterminals begun and not yet finished, innermost last */
+    private String[] open = new String[64];
+    private int openCount;
+
+    /**
+     * Class Constructor
+     * Numbers identifiers in a table of its own
+     */
+    public Generate() {
+        this(new Identifiers());
+    }
+
+    /**
+     * Class Constructor
+     * Numbers identifiers in the table the tokens it will be given were numbered in
+     *
+     * @param identifiers
+     */
+    public Generate(Identifiers identifiers) {
+        this.identifiers = identifiers;
+    }
+
+    /**
+     * Forgets every variable and scope, keeping the room made for them, ready to check
+     * another program whose identifiers are numbered afresh in the same table
+     */
+    public void reset() {
+        Arrays.fill(variables, null);
+        declaredCount = 0;
+        depth = 0;
+        terminals = 0;
+        statements = 0;
+        Arrays.fill(open, 0, openCount, null);
+        openCount = 0;
+    }
+
+    /**
+     * Names the program being checked, for the events recorded about it
+     *
+     * @param fileName
+     */
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * @return the number of terminals accepted so far
+     */
+    public int getTerminals() {
+        return terminals;
+    }
+
+    /**
+     * @return the number of statements begun so far
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    @Override
+    public void insertTerminal(Token token) {
+        terminals++;
+        super.insertTerminal(token);
+    }
+
+    @Override
+    public void commenceNonterminal(String name) {
+        if (name.equals("Statement")) {
+            statements++;
+        }
+        if (openCount == open.length) {
+            open = Arrays.copyOf(open, openCount * 2);
+        }
+        open[openCount++] = name;
+        super.commenceNonterminal(name);
+    }
+
+    @Override
+    public void finishNonterminal(String name) {
+        if (openCount > 0) {
+            open[--openCount] = null;
+        }
+        super.finishNonterminal(name);
+    }
+
+    /**
+     * How many nonterminals are begun and not yet finished
+     *
+     * @return the nesting depth of the trace
+     */
+    public int openNonterminals() {
+        return openCount;
+    }
+
+    /**
+     * Finishes, innermost first, every nonterminal begun since the trace was at the given
+     * depth, for a parse that abandons them after an error
+     *
+     * @param depth What openNonterminals() returned before they were begun
+     */
+    public void finishNonterminals(int depth) {
+        while (openCount > depth) {
+            finishNonterminal(open[openCount - 1]);
+        }
+    }
 
     /**
      * Prints out explanatory message of the error
@@ -18,32 +140,142 @@ public class Generate extends AbstractGenerate {
      */
     @Override
     public void reportError(Token token, String explanatoryMessage) throws CompilationException {
-        System.out.println("rggERROR "+explanatoryMessage);
+        SyntaxErrorEvent event = new SyntaxErrorEvent();
+        if (event.isEnabled()) {
+            event.file = fileName;
+            event.line = token.lineNumber;
+            event.message = explanatoryMessage;
+            event.commit();
+        }
+        sink.reportError(explanatoryMessage);
         throw new CompilationException(explanatoryMessage, token.lineNumber);
     }
 
     /**
-     * Add variable objects to the hashmap
+     * Reports an error without building its message, which is left to whatever prints it,
+     * or to a Flight Recorder recording that records syntax errors.  The exception holds
+     * the message, so it is built at most once however many of those ask for it
+     *
+     * @param token
+     * @param explanatoryMessage
+     * @throws CompilationException
+     */
+    @Override
+    public void reportError(Token token, Supplier<String> explanatoryMessage) throws CompilationException {
+        CompilationException error = new CompilationException(explanatoryMessage, token.lineNumber);
+        SyntaxErrorEvent event = new SyntaxErrorEvent();
+        if (event.isEnabled()) {
+            event.file = fileName;
+            event.line = token.lineNumber;
+            event.message = error.getMessage();
+            event.commit();
+        }
+        sink.reportError(error::getMessage);
+        throw error;
+    }
+
+    /**
+     * Add variable objects to the table, under the number of their identifier
      *
      * @param v The variable to add
      */
     @Override
     public void addVariable( Variable v ) {
-        if (getVariable(v.identifier) != null) {
+        int id = identifiers.intern(v.identifier);
+        if (lookup(id) != null) {
             //variable exists so don't add another variable
         } else {
-            variables.put(v.identifier, v);
-            System.out.println( "rggDECL " + v );
+            if (id >= variables.length) {
+                variables = Arrays.copyOf(variables, Math.max(variables.length * 2, id + 1));
+            }
+            variables[id] = v;
+            if (depth > 0) {
+                if (declaredCount == declared.length) {
+                    declared = Arrays.copyOf(declared, declaredCount * 2);
+                }
+                declared[declaredCount++] = id;
+            }
+            sink.addVariable( v );
+        }
+    }
+
+    /**
+     * Remove a variable from the table, if it is the one declared under its identifier
+     *
+     * @param v The variable to remove
+     */
+    @Override
+    public void removeVariable( Variable v ) {
+        if (v != null) {
+            int id = identifiers.find(v.identifier);
+            if (lookup(id) == v) {
+                variables[id] = null;
+            }
         }
+        super.removeVariable( v );
     }
 
     /**
-     * Get variable object from the hashmap
+     * Opens a scope; variables first declared while it is open are dropped when it is left
+     *
+     * @return the scope, to be handed to exitScope
+     */
+    public int enterScope() {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth] = declaredCount;
+        return depth++;
+    }
+
+    /**
+     * Leaves a scope, and any opened inside it and left open by an error, dropping the
+     * variables declared in them, latest first
+     *
+     * @param scope The scope enterScope returned
+     */
+    public void exitScope(int scope) {
+        if (scope >= depth) {
+            return;
+        }
+        int from = scopes[scope];
+        for (int i = declaredCount - 1; i >= from; i--) {
+            Variable v = variables[declared[i]];
+            if (v != null) {
+                variables[declared[i]] = null;
+                sink.removeVariable( v );
+            }
+        }
+        declaredCount = from;
+        depth = scope;
+    }
+
+    /**
+     * Get variable object from the table
      *
      * @param identifier The identifier to match
      * @return
      */
     public Variable getVariable(String identifier) {
-        return variables.get(identifier);
+        return lookup(identifiers.find(identifier));
+    }
+
+    /**
+     * Get variable object for an identifier token by its number, without looking at its text
+     *
+     * @param token The token to match
+     * @return
+     */
+    @Override
+    public Variable getVariable(Token token) {
+        if (token.id >= 0) {
+            return lookup(token.id);
+        }
+        //only identifiers can name variables, and a source may not number them
+        return (token.symbol == Token.identifier) ? getVariable(token.text) : null;
+    }
+
+    private Variable lookup(int id) {
+        return (id >= 0 && id < variables.length) ? variables[id] : null;
     }
 }
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * Numbers the identifiers of a program densely from 0, in the order they are first seen,
+ * so that a symbol table can be an array indexed by number instead of a map from strings.
+ *
+ * The numbers are kept in an open-addressing hash table, probed linearly, alongside each
+ * name and its hash.  A word can be looked up straight from the lexical analyser's buffer,
+ * so an identifier seen before costs neither a string nor a call to String.equals.
+ */
+public class Identifiers {
+    /** Each slot holds an identifier's number plus one, or 0 if it is empty. */
+    private int[] slots = new int[64];
+    private String[] names = new String[32];
+    private int[] hashes = new int[32];
+    private int size;
+
+    /**
+     * The number of a word held in a char array, given it one if it is new.
+     *
+     * @param chars The array holding the word
+     * @param start Where the word starts in it
+     * @param end The index after its last character
+     * @return the word's number
+     */
+    public int intern( char[] chars, int start, int end ) {
+        int hash = 0;
+        for( int i = start; i < end; i++ )
+            hash = 31 * hash + chars[i];
+
+        int mask = slots.length - 1;
+        for( int slot = spread( hash ) & mask; ; slot = (slot + 1) & mask ) {
+            int id = slots[slot] - 1;
+            if( id < 0 )
+                return add( new String( chars, start, end - start ), hash, slot );
+            if( hashes[id] == hash && matches( names[id], chars, start, end ) )
+                return id;
+        }
+    }
+
+    /**
+     * The number of an identifier, given it one if it is new.
+     *
+     * @param name The identifier
+     * @return its number
+     */
+    public int intern( String name ) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for( int slot = spread( hash ) & mask; ; slot = (slot + 1) & mask ) {
+            int id = slots[slot] - 1;
+            if( id < 0 )
+                return add( name, hash, slot );
+            if( hashes[id] == hash && names[id].equals( name ) )
+                return id;
+        }
+    }
+
+    /**
+     * The number of an identifier, without giving it one.
+     *
+     * @param name The identifier
+     * @return its number, or -1 if it has not been seen
+     */
+    public int find( String name ) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for( int slot = spread( hash ) & mask; ; slot = (slot + 1) & mask ) {
+            int id = slots[slot] - 1;
+            if( id < 0 || (hashes[id] == hash && names[id].equals( name )) )
+                return id;
+        }
+    }
+
+    /** The identifier numbered id. */
+    public String name( int id ) {
+        return names[id];
+    }
+
+    /** How many identifiers have been numbered, one more than the highest number. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets every identifier, so numbering starts again from 0, keeping the room made
+     * for them.
+     */
+    public void clear() {
+        Arrays.fill( slots, 0 );
+        Arrays.fill( names, 0, size, null );
+        size = 0;
+    }
+
+    private int add( String name, int hash, int slot ) {
+        if( size == names.length ) {
+            names = Arrays.copyOf( names, size * 2 );
+            hashes = Arrays.copyOf( hashes, size * 2 );
+        }
+        names[size] = name;
+        hashes[size] = hash;
+        slots[slot] = ++size;
+        if( size * 2 > slots.length )
+            rehash();
+        return size - 1;
+    }
+
+    /** Doubles the table, keeping it at most half full. */
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for( int id = 0; id < size; id++ ) {
+            int slot = spread( hashes[id] ) & mask;
+            while( slots[slot] != 0 )
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int spread( int hash ) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches( String name, char[] chars, int start, int end ) {
+        if( name.length() != end - start )
+            return false;
+        for( int i = start; i < end; i++ )
+            if( name.charAt( i - start ) != chars[i] )
+                return false;
+        return true;
+    }
+}
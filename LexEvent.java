@@ -0,0 +1,27 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for a LexicalAnalyser scanning a source, from its first token
+ * to the end of the source.  With tokens read one at a time by the parser it overlaps
+ * the parse; with -buffer it is the lexing alone.
+ */
+@Name( "checker.Lex" )
+@Label( "Lex" )
+@Category( "Syntax Checker" )
+@Description( "A source scanned by LexicalAnalyser to its end" )
+public class LexEvent extends Event {
+    @Label( "File" )
+    String file;
+
+    @Label( "Source Size" )
+    @Description( "Characters read from the source" )
+    long size;
+
+    @Label( "Tokens" )
+    @Description( "Tokens scanned, counting the end of the source" )
+    int tokens;
+}
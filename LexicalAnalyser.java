@@ -10,39 +10,44 @@
  *
  **/
 import java.io.* ;
+import java.nio.ByteBuffer ;
+import java.nio.CharBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.charset.Charset ;
+import java.nio.charset.CharsetDecoder ;
+import java.nio.charset.CodingErrorAction ;
+import java.nio.charset.StandardCharsets ;
+import java.nio.file.StandardOpenOption ;
+import java.util.Arrays ;
 
-public class LexicalAnalyser
+public class LexicalAnalyser implements TokenSource
 {
 
-	/** Represents a textual and symbolic reserved word. */
-	class ReservedWord
-	{
-		/** The text used in source. */
-		public String text ;
-		/** The type (one of the class constants from Token) of this word. */
-		public int symbol ;
-
-		/** Creates a new reserved word from the observed text and a given type.
-
-		  @param t The text as seen in source.
-		  @param s The type of this word, typically a class constant from Token
-		 */
-		public ReservedWord(String t, int s)
-		{
-			text = t ;
-			symbol = s ;
-		} // end of constructor method
-	} // end of class ReservedWord
-
-	/** The maximum number of identifiers to hold during compilation. */
+	/** The maximum number of reserved words the symbol table can hold. */
 	private static final int maxTableSize = 200 ;
+	/** Reserved words are spelt with the letters a to z only. */
+	private static final int ALPHABET = 26 ;
 	/** The EOF character. */
 	private static final char EOF = '\000' ;
+	/** The initial size of the input buffer; it only grows for a token longer than this. */
+	private static final int BUFFER_SIZE = 8192 ;
+
+	/** Files at least this many bytes long are memory-mapped rather than streamed. */
+	private static volatile long mappedThreshold = 1 << 20 ;
+
+	/** Do analysers created from now on hand out one Token, updated in place? */
+	private static volatile boolean reuseTokens = false ;
 
-	/** A list of symbols. */
-	private ReservedWord[] symbols = new ReservedWord[maxTableSize] ;
-	/** Holds the current number of symbols held. */
-	private int noOfSymbols ;
+	/* The reserved words, held as a trie over the letters a to z so that a word is
+	   classified in one pass over its characters whatever the size of the table.
+	   Node 0 is the root; the child of node n for letter c is
+	   trieNext[n * ALPHABET + (c - 'a')], 0 meaning there is none, and
+	   trieSymbol[n] is the symbol of the word ending at n, 0 if none does.  It is
+	   built once, below, and only ever read, so every analyser shares it. */
+	private static final int[] trieNext ;
+	private static final int[] trieSymbol ;
+	/** The length of the longest reserved word; anything longer is an identifier. */
+	private static final int longestWord ;
 
 	/** Is this the first time we have been called? */
 	private boolean firstCall ;
@@ -50,51 +55,107 @@ public class LexicalAnalyser
 	/** The source filename, as a string */
 	private String sourceFileName;
 
-	/** An input stream from the filename mentioned above. */
-	private BufferedReader sourceFile ;
+	/** An input stream from the filename mentioned above, when it is streamed. */
+	private Reader sourceFile ;
+
+	/** The source, when it was handed over as characters already in memory. */
+	private CharBuffer sourceChars ;
+
+	/* The contents of the file, when it is memory-mapped, and the decoder for its
+	   non-ASCII bytes.  ASCII bytes are copied straight into the buffer whenever
+	   the platform charset agrees with ASCII on them. */
+	private ByteBuffer sourceBytes ;
+	private CharsetDecoder decoder ;
+	private boolean asciiBytes ;
 
 	/* State-change character and offset counts. */
 	private char currentCharacter ;
-	private String currentLine ;
-	private int currentOffset,
-			currentLineNumber ;
+	private int currentLineNumber ;
 
-	/* input buffer */
-	private StringBuffer currentText = new StringBuffer() ;
+	/* Input buffer.  Line endings are turned into a single '\n' as the source is read,
+	   and a final '\n' is supplied if the source does not end with one, so the scanner
+	   sees exactly what reading the file line by line used to give it. */
+	private char[] buffer = new char[BUFFER_SIZE] ;
+	/** Index of the next character to load from the buffer. */
+	private int position ;
+	/** Number of characters held in the buffer. */
+	private int limit ;
+	/** Index in the buffer of currentCharacter; limit once the source is exhausted. */
+	private int currentIndex ;
+	/** Was the last character read a carriage return? */
+	private boolean pendingReturn ;
+	/** Has a line been started but not yet ended? */
+	private boolean lineOpen ;
+	/** Has the source been read to its end? */
+	private boolean exhausted ;
 
-	/** Adds a reserved word to the internal symbol table.
+	/* The token last scanned: its symbol and line, and either its fixed text or
+	   where its text lies in the buffer.  Text is only copied out on request. */
+	private int tokenSymbol,
+			tokenLine ;
+	private int tokenStart = -1,
+			tokenEnd ;
+	private String tokenText ;
+	/** The number of the identifier last scanned, -1 if it was some other token. */
+	private int tokenId = -1 ;
+	/** Did the word last looked up in the trie have capital letters? */
+	private boolean foldedCase ;
 
-	  @param t The text as seen in source.
-	  @param s The type of this word, typically a class constant from Token
-	 */
-	private void setReservedWord(String t, int s)
-	{
-		symbols[noOfSymbols] = new ReservedWord(t, s) ;
-		noOfSymbols++ ;
-	} // end of method setReservedWord
-
-
-	/** Sets all initial variables and adds the language's reserved words to the symbol table. */
-	private void initialiseScanner()
-	{
-		noOfSymbols = 0 ;
-		setReservedWord("begin", Token.beginSymbol) ;
-		setReservedWord("call", Token.callSymbol) ;
-		setReservedWord("do", Token.doSymbol) ;
-		setReservedWord("else", Token.elseSymbol) ;
-		setReservedWord("end", Token.endSymbol) ;
-		setReservedWord("float", Token.floatSymbol) ;
-		setReservedWord("if", Token.ifSymbol) ;
-		setReservedWord("integer", Token.integerSymbol) ;
-		setReservedWord("is", Token.isSymbol) ;
-		setReservedWord("loop", Token.loopSymbol) ;
-		setReservedWord("procedure", Token.procedureSymbol) ;
-		setReservedWord("string", Token.stringSymbol) ;
-		setReservedWord("then", Token.thenSymbol) ;
-		setReservedWord("until", Token.untilSymbol) ;
-		setReservedWord("while", Token.whileSymbol) ;
-		setReservedWord("for", Token.forSymbol) ;
-	} // end of method initialiseScanner
+	/** Numbers the identifiers of the source, and holds one copy of each one's text. */
+	private final Identifiers identifiers = new Identifiers() ;
+
+	/* How much of the source has been read and scanned, and the Flight Recorder
+	   event timing the scan, from the first token until the end is reached. */
+	private long charactersRead ;
+	/** The size of the source in bytes, -1 if it was given as characters. */
+	private long sourceSize ;
+	private int tokensScanned ;
+	private LexEvent lexEvent ;
+
+	/** The one Token getNextToken() returns in token-reuse mode, or null to create
+	  a new one each call. */
+	private final Token cursor = reuseTokens ? new Token(Token.eofSymbol, "", 0) : null ;
+
+	/** Builds the trie of the language's reserved words. */
+	static
+	{
+		String[] words = { "begin", "call", "do", "else", "end", "float", "if", "integer",
+			"is", "loop", "procedure", "string", "then", "until", "while", "for" } ;
+		int[] symbols = { Token.beginSymbol, Token.callSymbol, Token.doSymbol, Token.elseSymbol,
+			Token.endSymbol, Token.floatSymbol, Token.ifSymbol, Token.integerSymbol,
+			Token.isSymbol, Token.loopSymbol, Token.procedureSymbol, Token.stringSymbol,
+			Token.thenSymbol, Token.untilSymbol, Token.whileSymbol, Token.forSymbol } ;
+		if (words.length > maxTableSize)
+			throw new IllegalStateException("reserved word table is full") ;
+
+		// a word adds at most one node a letter to the root
+		int letters = 0 ;
+		for (String t : words)
+			letters += t.length() ;
+		int[] next = new int[(letters + 1) * ALPHABET] ;
+		int[] symbol = new int[letters + 1] ;
+		int nodes = 1 ;
+		int longest = 0 ;
+
+		for (int w = 0 ; w < words.length ; w++)
+		{
+			String t = words[w] ;
+			int node = 0 ;
+			for (int i = 0 ; i < t.length() ; i++)
+			{
+				int edge = node * ALPHABET + (t.charAt(i) - 'a') ;
+				if (next[edge] == 0)
+					next[edge] = nodes++ ;
+				node = next[edge] ;
+			}
+			symbol[node] = symbols[w] ;
+			longest = Math.max(longest, t.length()) ;
+		}
+
+		trieNext = Arrays.copyOf(next, nodes * ALPHABET) ;
+		trieSymbol = Arrays.copyOf(symbol, nodes) ;
+		longestWord = longest ;
+	} // end of static initialiser
 
 
 	/** Creates a new LexicalAnalyser which will run over the given file.
@@ -104,15 +165,229 @@ public class LexicalAnalyser
 	 */
 	public LexicalAnalyser(String fileName) throws IOException
 	{
-		initialiseScanner() ;
+		reset(fileName) ;
+	} // end of constructor method
+
+	/** Creates a new LexicalAnalyser which will run over source already open, such as
+	  a program sent to the checker rather than saved to a file.
+
+	  @param name The name to report the source under.
+	  @param source The source to read; it is closed once read to its end.
+	 */
+	public LexicalAnalyser(String name, Reader source)
+	{
+		reset(name, source) ;
+	} // end of constructor method
+
+	/** Creates a new LexicalAnalyser which will run over characters held in memory.
+
+	  @param name The name to report the source under.
+	  @param source The source; it is read in place, and must not change until scanned.
+	 */
+	public LexicalAnalyser(String name, CharSequence source)
+	{
+		this(name, CharBuffer.wrap(source)) ;
+	} // end of constructor method
+
+	/** Creates a new LexicalAnalyser which will run over characters held in memory.
+
+	  @param name The name to report the source under.
+	  @param source The source; it is read in place, and must not change until scanned.
+	 */
+	public LexicalAnalyser(String name, char[] source)
+	{
+		this(name, CharBuffer.wrap(source)) ;
+	} // end of constructor method
+
+	private LexicalAnalyser(String name, CharBuffer source)
+	{
+		reset(name, source) ;
+	} // end of constructor method
+
+	/** Creates a new LexicalAnalyser which will run over encoded source held in memory,
+	  decoding it as a file of the platform's charset would be.
+
+	  @param name The name to report the source under.
+	  @param source The source from its position to its limit; the position is left alone.
+	 */
+	public LexicalAnalyser(String name, ByteBuffer source)
+	{
+		this(name, source, Charset.defaultCharset()) ;
+	} // end of constructor method
+
+	/** Creates a new LexicalAnalyser which will run over encoded source held in memory.
+
+	  @param name The name to report the source under.
+	  @param source The source from its position to its limit; the position is left alone.
+	  @param charset The encoding of the source.
+	 */
+	public LexicalAnalyser(String name, ByteBuffer source, Charset charset)
+	{
+		reset(name, source, charset) ;
+	} // end of constructor method
+
+	/** Starts this analyser over on another file, as if it had just been created for
+	  it, but keeping its input buffer and the room in its
+	  identifier table.  Identifiers are numbered afresh, so the ids of tokens handed
+	  out before no longer mean anything.
+
+	  @param fileName The file to read.
+	  @throws IOException if the file cannot be opened.
+	 */
+	public void reset(String fileName) throws IOException
+	{
+		clear(fileName) ;
+		File file = new File(fileName) ;
+		sourceSize = file.length() ;
+		if (file.length() >= mappedThreshold)
+		{
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+			{
+				decodeBytes(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), Charset.defaultCharset()) ;
+			}
+		}
+		else
+			sourceFile = new FileReader(fileName) ;
+	} // end of method reset
+
+	/** Starts this analyser over on source already open, as above.
+
+	  @param name The name to report the source under.
+	  @param source The source to read; it is closed once read to its end.
+	 */
+	public void reset(String name, Reader source)
+	{
+		clear(name) ;
+		sourceFile = source ;
+	} // end of method reset
+
+	/** Starts this analyser over on characters held in memory, as above.
+
+	  @param name The name to report the source under.
+	  @param source The source; it is read in place, and must not change until scanned.
+	 */
+	public void reset(String name, CharSequence source)
+	{
+		reset(name, CharBuffer.wrap(source)) ;
+	} // end of method reset
+
+	/** Starts this analyser over on characters held in memory, as above.
+
+	  @param name The name to report the source under.
+	  @param source The source; it is read in place, and must not change until scanned.
+	 */
+	public void reset(String name, char[] source)
+	{
+		reset(name, CharBuffer.wrap(source)) ;
+	} // end of method reset
+
+	private void reset(String name, CharBuffer source)
+	{
+		clear(name) ;
+		sourceChars = source ;
+	} // end of method reset
+
+	/** Starts this analyser over on encoded source held in memory, decoding it as a
+	  file of the platform's charset would be, as above.
+
+	  @param name The name to report the source under.
+	  @param source The source from its position to its limit; the position is left alone.
+	 */
+	public void reset(String name, ByteBuffer source)
+	{
+		reset(name, source, Charset.defaultCharset()) ;
+	} // end of method reset
+
+	/** Starts this analyser over on encoded source held in memory, as above.
 
-		sourceFileName = fileName;
-		sourceFile = new BufferedReader(new FileReader(fileName)) ;
-		currentLine = sourceFile.readLine() ;
-		currentOffset = 0 ;
+	  @param name The name to report the source under.
+	  @param source The source from its position to its limit; the position is left alone.
+	  @param charset The encoding of the source.
+	 */
+	public void reset(String name, ByteBuffer source, Charset charset)
+	{
+		clear(name) ;
+		sourceSize = source.remaining() ;
+		decodeBytes(source.slice(), charset) ;
+	} // end of method reset
+
+	/** Forgets the source being read, closing it if it was left part way through,
+	  and everything scanned from it.
+
+	  @param name The name to report the next source under.
+	 */
+	private void clear(String name)
+	{
+		if (sourceFile != null && !exhausted)
+		{
+			try
+			{
+				sourceFile.close() ;
+			}
+			catch (IOException e)
+			{
+				// nothing more is wanted from it
+			}
+		}
+		sourceFileName = name ;
+		sourceFile = null ;
+		sourceChars = null ;
+		sourceBytes = null ;
+		decoder = null ;
+		position = 0 ;
+		limit = 0 ;
+		currentIndex = 0 ;
+		pendingReturn = false ;
+		lineOpen = false ;
+		exhausted = false ;
+		tokenStart = -1 ;
+		tokenText = null ;
+		tokenId = -1 ;
+		identifiers.clear() ;
+		charactersRead = 0 ;
+		sourceSize = -1 ;
+		tokensScanned = 0 ;
+		lexEvent = null ;
 		firstCall = true ;
 		currentLineNumber = 0 ;
-	} // end of constructor method
+	} // end of method clear
+
+	/** Reads the source from bytes, as is done for a memory-mapped file.
+
+	  @param bytes The source.
+	  @param charset Its encoding.
+	 */
+	private void decodeBytes(ByteBuffer bytes, Charset charset)
+	{
+		sourceBytes = bytes ;
+		decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE) ;
+		asciiBytes = charset.equals(StandardCharsets.UTF_8) ||
+				charset.equals(StandardCharsets.US_ASCII) ||
+				charset.equals(StandardCharsets.ISO_8859_1) ;
+	} // end of method decodeBytes
+
+	/** Sets the file size from which input is memory-mapped instead of streamed.
+
+	  @param bytes The threshold in bytes; 0 maps every file, Long.MAX_VALUE none.
+	 */
+	public static void setMappedThreshold(long bytes)
+	{
+		mappedThreshold = bytes ;
+	} // end of method setMappedThreshold
+
+	/** Chooses whether analysers created from now on return the same Token from
+	  every call of getNextToken(), overwriting it with each new token, rather than
+	  allocating one per token.  A caller that keeps a token past the next call must
+	  copy it first.
+
+	  @param reuse true to reuse a single Token.
+	 */
+	public static void setTokenReuse(boolean reuse)
+	{
+		reuseTokens = reuse ;
+	} // end of method setTokenReuse
 
 	/**
 	 * Simply returns the current loaded input file name
@@ -121,27 +396,200 @@ public class LexicalAnalyser
 		return sourceFileName;
 	}
 
+	/** Returns the number of characters read from the source so far. */
+	public long getCharactersRead()
+	{
+		return charactersRead ;
+	}
+
+	/** Returns the size of the source in bytes, or -1 if it was given as characters. */
+	public long getSourceSize()
+	{
+		return sourceSize ;
+	}
+
+	/** Returns the table the identifiers of this source are numbered in. */
+	public Identifiers getIdentifiers()
+	{
+		return identifiers ;
+	}
+
 	/** Loads the next character of the input into the buffer.
 
 	  @throws IOException in the event that something like velociraptor attack happens to the input stream.
 	 */
 	private void getNextCharacter() throws IOException
 	{
-		if (currentLine == null)
-			currentCharacter = EOF ;
-		else if (currentOffset >= currentLine.length())
+		if ((position >= limit) && !fill())
 		{
-			currentLine = sourceFile.readLine() ;
-			currentOffset = 0 ;
-			currentCharacter = '\n' ;
+			currentIndex = position ;
+			currentCharacter = EOF ;
 		}
 		else
 		{
-			currentCharacter = currentLine.charAt(currentOffset) ;
-			currentOffset++ ;
+			currentIndex = position ;
+			currentCharacter = buffer[position] ;
+			position++ ;
 		}
 	} // end of method getNextCharacter
 
+	/** Reads more of the source into the buffer, first moving any token still being
+	  scanned to the front so that its characters stay in one piece.
+
+	  @throws IOException if the source cannot be read.
+	  @return false once the source is exhausted and nothing more could be read.
+	 */
+	private boolean fill() throws IOException
+	{
+		if (exhausted)
+			return false ;
+
+		int keep = (tokenStart >= 0) ? tokenStart : position ;
+		if (keep > 0)
+		{
+			System.arraycopy(buffer, keep, buffer, 0, limit - keep) ;
+			limit -= keep ;
+			position -= keep ;
+			if (tokenStart >= 0)
+			{
+				tokenStart -= keep ;
+				tokenEnd -= keep ;
+			}
+		}
+		if (buffer.length - limit < 2)
+			buffer = Arrays.copyOf(buffer, buffer.length * 2) ;
+
+		int start = limit ;
+		while (limit == start)
+		{
+			int n = (sourceBytes != null) ? readMapped(buffer, limit, buffer.length - limit) :
+					(sourceChars != null) ? readChars(buffer, limit, buffer.length - limit) :
+					sourceFile.read(buffer, limit, buffer.length - limit) ;
+			if (n < 0)
+			{
+				exhausted = true ;
+				if (sourceFile != null)
+					sourceFile.close() ;
+				if (lineOpen)
+				{
+					buffer[limit++] = '\n' ;
+					lineOpen = false ;
+				}
+				return limit > start ;
+			}
+			charactersRead += n ;
+			limit = normaliseLineEnds(limit, limit + n) ;
+		}
+		return true ;
+	} // end of method fill
+
+	/** Decodes characters from the mapped file, or source bytes held in memory, into the
+	  given array, copying runs of ASCII bytes across directly and handing anything else
+	  to the decoder.
+
+	  @param into The array to fill.
+	  @param off Where to start filling it.
+	  @param len The most characters to decode; at least 2, room for a surrogate pair.
+	  @return the number of characters decoded, or -1 at the end of the file.
+	 */
+	private int readMapped(char[] into, int off, int len)
+	{
+		if (!sourceBytes.hasRemaining())
+			return -1 ;
+
+		int n = 0 ;
+		if (asciiBytes)
+		{
+			int p = sourceBytes.position() ;
+			int end = sourceBytes.limit() ;
+			byte b ;
+			while ((n < len) && (p < end) && ((b = sourceBytes.get(p)) >= 0))
+			{
+				into[off + n++] = (char) b ;
+				p++ ;
+			}
+			sourceBytes.position(p) ;
+		}
+		if ((n < len) && sourceBytes.hasRemaining())
+		{
+			CharBuffer out = CharBuffer.wrap(into, off + n, len - n) ;
+			decoder.decode(sourceBytes, out, true) ;
+			n = out.position() - off ;
+		}
+		return n ;
+	} // end of method readMapped
+
+	/** Copies characters from source held in memory into the given array.
+
+	  @param into The array to fill.
+	  @param off Where to start filling it.
+	  @param len The most characters to copy.
+	  @return the number of characters copied, or -1 at the end of the source.
+	 */
+	private int readChars(char[] into, int off, int len)
+	{
+		if (!sourceChars.hasRemaining())
+			return -1 ;
+
+		int n = Math.min(len, sourceChars.remaining()) ;
+		sourceChars.get(into, off, n) ;
+		return n ;
+	} // end of method readChars
+
+	/** Turns the "\r\n" and lone "\r" line endings of freshly read characters into "\n", in place.
+
+	  @param from The index of the first character read.
+	  @param to The index after the last character read.
+	  @return the index after the last character kept.
+	 */
+	private int normaliseLineEnds(int from, int to)
+	{
+		int out = from ;
+		for (int i = from ; i < to ; i++)
+		{
+			char c = buffer[i] ;
+			if (pendingReturn && (c == '\n'))
+			{
+				pendingReturn = false ;
+				continue ;
+			}
+			pendingReturn = (c == '\r') ;
+			buffer[out++] = pendingReturn ? '\n' : c ;
+		}
+		if (out > from)
+			lineOpen = (buffer[out - 1] != '\n') ;
+		return out ;
+	} // end of method normaliseLineEnds
+
+	/** Looks the word last scanned up in the reserved word trie, ignoring its case,
+	  without copying it out of the buffer.
+
+	  @return the symbol of the reserved word, or Token.identifier if it is not one.
+	 */
+	private int reservedSymbol()
+	{
+		if (tokenEnd - tokenStart > longestWord)
+			return Token.identifier ;
+
+		int node = 0 ;
+		foldedCase = false ;
+		for (int i = tokenStart ; i < tokenEnd ; i++)
+		{
+			char c = buffer[i] ;
+			if ((c >= 'A') && (c <= 'Z'))
+			{
+				c += 'a' - 'A' ;
+				foldedCase = true ;
+			}
+			if ((c < 'a') || (c > 'z'))
+				return Token.identifier ;
+			node = trieNext[node * ALPHABET + (c - 'a')] ;
+			if (node == 0)
+				return Token.identifier ;
+		}
+		return (trieSymbol[node] != 0) ? trieSymbol[node] : Token.identifier ;
+	} // end of method reservedSymbol
+
 	/** Returns the next token from the source file.  Repeatedly calling this
 	  will return each token in the file, and eventually null.
 
@@ -150,8 +598,41 @@ public class LexicalAnalyser
 	 */
 	public Token getNextToken() throws IOException
 	{
+		int symbol = nextSymbol() ;
+		if (cursor == null)
+		{
+			Token token = new Token(symbol, getTokenText(), tokenLine) ;
+			token.id = tokenId ;
+			return token ;
+		}
+
+		cursor.symbol = symbol ;
+		cursor.text = getTokenText() ;
+		cursor.lineNumber = tokenLine ;
+		cursor.id = tokenId ;
+		return cursor ;
+	} // end of method getNextToken
+
+	/** Scans the next token without creating a Token for it.  Its text stays in
+	  the buffer until asked for through getTokenText(), so scanning allocates
+	  nothing.  Repeatedly calling this will return each symbol in the file,
+	  and eventually Token.eofSymbol.
+
+	  @throws IOException in the event that the file cannot be read.
+	  @throws InterruptedIOException if the thread has been interrupted.
+	  @return the symbol of the next token, a class constant from Token.
+	 */
+	public int nextSymbol() throws IOException
+	{
+		// a check given up on, such as one that timed out, stops at its next token
+		if (Thread.interrupted())
+			throw new InterruptedIOException("scan of " + sourceFileName + " interrupted") ;
+		tokenStart = -1 ;
+		tokensScanned++ ;
 		if (firstCall)
 		{
+			lexEvent = new LexEvent() ;
+			lexEvent.begin() ;
 			getNextCharacter() ;
 			firstCall = false ;
 		}
@@ -168,7 +649,7 @@ public class LexicalAnalyser
 						getNextCharacter() ;
 				}
 				else
-					return new Token(Token.minusSymbol, "-", currentLineNumber) ;
+					return fixed(Token.minusSymbol, "-") ;
 			}
 
 			if (currentCharacter == '\n')
@@ -178,56 +659,41 @@ public class LexicalAnalyser
 
 		if (Character.isLetter(currentCharacter))
 		{
-			currentText.setLength(0) ;
+			tokenStart = currentIndex ;
 			while ((Character.isLetter(currentCharacter)) ||
 					(Character.isDigit(currentCharacter)))
-			{
-				currentText.append(currentCharacter) ;
 				getNextCharacter() ;
-			}
-
-			int i = 0 ;
-			String t = (new String(currentText)).toLowerCase() ;
-			while ((i < noOfSymbols) &&
-					(!t.equals(symbols[i].text)))
-				i++ ;
-
-			if (i < noOfSymbols)
-				return new Token(symbols[i].symbol, currentText, currentLineNumber) ;
-			else
-				return new Token(Token.identifier, currentText, currentLineNumber) ;
+			tokenEnd = currentIndex ;
+			int symbol = reservedSymbol() ;
+			if (symbol == Token.identifier)
+				return named(identifiers.intern(buffer, tokenStart, tokenEnd)) ;
+			if (!foldedCase)
+				return fixed(symbol, Token.getName(symbol)) ;	// spelt as in the table, so share it
+			return scanned(symbol) ;
 		}
 		else if (Character.isDigit(currentCharacter))
 		{
-			currentText.setLength(0);
+			tokenStart = currentIndex ;
 			while (Character.isDigit(currentCharacter))
-			{
-				currentText.append(currentCharacter) ;
 				getNextCharacter() ;
-			}
 			if (currentCharacter == '.')
 			{
-				currentText.append(currentCharacter) ;
 				getNextCharacter() ;
 				while (Character.isDigit(currentCharacter))
-				{
-					currentText.append(currentCharacter) ;
 					getNextCharacter() ;
-				}
 			}
-			return new Token(Token.numberConstant, currentText, currentLineNumber) ;
+			tokenEnd = currentIndex ;
+			return scanned(Token.numberConstant) ;
 		}
 		else if (currentCharacter == '"')
 		{
 			getNextCharacter() ;
-			currentText.setLength(0) ;
-			while (currentCharacter != '"')
-			{
-				currentText.append(currentCharacter) ;
+			tokenStart = currentIndex ;
+			while ((currentCharacter != '"') && (currentIndex < limit))
 				getNextCharacter() ;
-			}
+			tokenEnd = currentIndex ;
 			getNextCharacter() ;
-			return new Token(Token.stringConstant, currentText, currentLineNumber) ;
+			return scanned(Token.stringConstant) ;
 		}
 		else if (currentCharacter == ':')
 		{
@@ -235,10 +701,10 @@ public class LexicalAnalyser
 			if (currentCharacter == '=')
 			{
 				getNextCharacter() ;
-				return new Token(Token.becomesSymbol, ":=", currentLineNumber) ;
+				return fixed(Token.becomesSymbol, ":=") ;
 			}
 			else
-				return new Token(Token.colonSymbol, ":", currentLineNumber) ;
+				return fixed(Token.colonSymbol, ":") ;
 		}
 		else if (currentCharacter == '>')
 		{
@@ -246,10 +712,10 @@ public class LexicalAnalyser
 			if (currentCharacter == '=')
 			{
 				getNextCharacter() ;
-				return new Token(Token.greaterEqualSymbol, ">=", currentLineNumber) ;
+				return fixed(Token.greaterEqualSymbol, ">=") ;
 			}
 			else
-				return new Token(Token.greaterThanSymbol, ">", currentLineNumber) ;
+				return fixed(Token.greaterThanSymbol, ">") ;
 		}
 		else if (currentCharacter == '<')
 		{
@@ -257,10 +723,10 @@ public class LexicalAnalyser
 			if (currentCharacter == '=')
 			{
 				getNextCharacter() ;
-				return new Token(Token.lessEqualSymbol, "<=", currentLineNumber) ;
+				return fixed(Token.lessEqualSymbol, "<=") ;
 			}
 			else
-				return new Token(Token.lessThanSymbol, "<", currentLineNumber) ;
+				return fixed(Token.lessThanSymbol, "<") ;
 		}
 		else if (currentCharacter == '/')
 		{
@@ -268,57 +734,171 @@ public class LexicalAnalyser
 			if (currentCharacter == '=')
 			{
 				getNextCharacter() ;
-				return new Token(Token.notEqualSymbol, "/=", currentLineNumber) ;
+				return fixed(Token.notEqualSymbol, "/=") ;
 			}
 			else
-				return new Token(Token.divideSymbol, "/", currentLineNumber) ;
+				return fixed(Token.divideSymbol, "/") ;
 		}
 		else if (currentCharacter == '=')
 		{
 			getNextCharacter() ;
-			return new Token(Token.equalSymbol, "=", currentLineNumber) ;
+			return fixed(Token.equalSymbol, "=") ;
 		}
 		else if (currentCharacter == ',')
 		{
 			getNextCharacter() ;
-			return new Token(Token.commaSymbol, ",", currentLineNumber) ;
+			return fixed(Token.commaSymbol, ",") ;
 		}
 		else if (currentCharacter == ';')
 		{
 			getNextCharacter() ;
-			return new Token(Token.semicolonSymbol, ";", currentLineNumber) ;
+			return fixed(Token.semicolonSymbol, ";") ;
 		}
 		else if (currentCharacter == '+')
 		{
 			getNextCharacter() ;
-			return new Token(Token.plusSymbol, "+", currentLineNumber) ;
+			return fixed(Token.plusSymbol, "+") ;
 		}
 		else if (currentCharacter == '*')
 		{
 			getNextCharacter() ;
-			return new Token(Token.timesSymbol, "*", currentLineNumber) ;
+			return fixed(Token.timesSymbol, "*") ;
 		}
 		else if (currentCharacter == '(')
 		{
 			getNextCharacter() ;
-			return new Token(Token.leftParenthesis, "(", currentLineNumber) ;
+			return fixed(Token.leftParenthesis, "(") ;
 		}
 		else if (currentCharacter == ')')
 		{
 			getNextCharacter() ;
-			return new Token(Token.rightParenthesis, ")", currentLineNumber) ;
+			return fixed(Token.rightParenthesis, ")") ;
 		}
 		else if (currentCharacter == EOF)
 		{
-			return new Token(Token.eofSymbol, "", currentLineNumber) ;
+			endOfSource() ;
+			return fixed(Token.eofSymbol, "") ;
 		}
 		else
 		{
-			currentText = new StringBuffer(currentCharacter) ;
+			tokenStart = currentIndex ;
 			getNextCharacter() ;		// added 21st January 2005
-			return new Token(Token.errorSymbol, currentText, currentLineNumber) ;
+			tokenEnd = tokenStart + 1 ;
+			return scanned(Token.errorSymbol) ;
 		}
-	} // end of method getNextToken
+	} // end of method nextSymbol
+
+	/** Records the Flight Recorder event for the scan, the first time the end of
+	  the source is reached.
+	 */
+	private void endOfSource()
+	{
+		if (lexEvent == null)
+			return ;
+
+		lexEvent.end() ;
+		if (lexEvent.shouldCommit())
+		{
+			lexEvent.file = sourceFileName ;
+			lexEvent.size = charactersRead ;
+			lexEvent.tokens = tokensScanned ;
+			lexEvent.commit() ;
+		}
+		lexEvent = null ;
+	} // end of method endOfSource
+
+	/** Records a token whose text is always the same.
+
+	  @param symbol The symbol scanned.
+	  @param text Its text.
+	  @return the symbol.
+	 */
+	private int fixed(int symbol, String text)
+	{
+		tokenSymbol = symbol ;
+		tokenText = text ;
+		tokenId = -1 ;
+		tokenLine = currentLineNumber ;
+		return symbol ;
+	} // end of method fixed
+
+	/** Records an identifier, whose text is the one copy kept for its number.
+
+	  @param id The number of the identifier scanned.
+	  @return Token.identifier.
+	 */
+	private int named(int id)
+	{
+		tokenSymbol = Token.identifier ;
+		tokenText = identifiers.name(id) ;
+		tokenId = id ;
+		tokenLine = currentLineNumber ;
+		return Token.identifier ;
+	} // end of method named
+
+	/** Records a token whose text lies in the buffer between tokenStart and tokenEnd.
+
+	  @param symbol The symbol scanned.
+	  @return the symbol.
+	 */
+	private int scanned(int symbol)
+	{
+		tokenSymbol = symbol ;
+		tokenText = null ;
+		tokenId = -1 ;
+		tokenLine = currentLineNumber ;
+		return symbol ;
+	} // end of method scanned
+
+	/** Returns the symbol of the token last scanned by nextSymbol(). */
+	public int getTokenSymbol()
+	{
+		return tokenSymbol ;
+	}
+
+	/** Returns the line number of the token last scanned by nextSymbol(). */
+	public int getTokenLine()
+	{
+		return tokenLine ;
+	}
+
+	/** Returns the number of the identifier last scanned by nextSymbol() in
+	  getIdentifiers(), or -1 if the token was not an identifier. */
+	public int getTokenId()
+	{
+		return tokenId ;
+	}
+
+	/** Returns the text of the token last scanned by nextSymbol(), creating the
+	  string on the first request.  Only valid until nextSymbol() is called again.
+	 */
+	public String getTokenText()
+	{
+		if (tokenText == null)
+			tokenText = new String(buffer, tokenStart, tokenEnd - tokenStart) ;
+		return tokenText ;
+	} // end of method getTokenText
+
+	/** Returns the length of the text of the token last scanned by nextSymbol(). */
+	public int getTokenLength()
+	{
+		return (tokenText != null) ? tokenText.length() : tokenEnd - tokenStart ;
+	} // end of method getTokenLength
+
+	/** Copies the text of the token last scanned by nextSymbol() into an array,
+	  without creating a string for it.
+
+	  @param dst The array to copy into, with room for getTokenLength() characters.
+	  @param dstBegin Where in it to start.
+	 */
+	public void getTokenChars(char[] dst, int dstBegin)
+	{
+		if (tokenText != null)
+			tokenText.getChars(0, tokenText.length(), dst, dstBegin) ;
+		else
+			System.arraycopy(buffer, tokenStart, dst, dstBegin, tokenEnd - tokenStart) ;
+	} // end of method getTokenChars
+
 
 	/** Entry point to text Lexer */
 	public static void main(String[] args) throws IOException
@@ -0,0 +1,181 @@
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Where the time checking programs goes: how many files were checked, latency
+ * histograms for reading, lexing and parsing each one, and for every nonterminal how
+ * often it was entered and how long it took, its nested nonterminals included.
+ *
+ * An instance is filled by one thread at a time; the metrics of files checked on other
+ * threads are gathered into one with {@link #merge(Metrics)}.
+ */
+public class Metrics {
+    /** The phases of checking a file that are timed apart. */
+    public enum Phase {
+        READ( "read" ),
+        LEX( "lex" ),
+        PARSE( "parse" );
+
+        public final String name;
+        private Phase( String n ) {
+            this.name = n;
+        }
+    }
+
+    /**
+     * Counts of durations in power-of-two buckets of nanoseconds: bucket 0 holds 0, and
+     * bucket b those from 2^(b-1) up to 2^b - 1, so a percentile is known to within a
+     * factor of 2.
+     */
+    public static class Histogram {
+        private final long[] buckets = new long[64];
+        private long count;
+        private long total;
+        private long max;
+
+        /** Adds one duration. */
+        public void record( long nanos ) {
+            if( nanos < 0 )
+                nanos = 0;
+            buckets[64 - Long.numberOfLeadingZeros( nanos )]++;
+            count++;
+            total += nanos;
+            max = Math.max( max, nanos );
+        }
+
+        /** Adds every duration recorded in another histogram. */
+        public void merge( Histogram other ) {
+            for( int b = 0; b < buckets.length; b++ )
+                buckets[b] += other.buckets[b];
+            count += other.count;
+            total += other.total;
+            max = Math.max( max, other.max );
+        }
+
+        /** The number of durations recorded. */
+        public long count() {
+            return count;
+        }
+
+        /** Their sum, in nanoseconds. */
+        public long totalNanos() {
+            return total;
+        }
+
+        /** The longest, in nanoseconds. */
+        public long maxNanos() {
+            return max;
+        }
+
+        /**
+         * An upper bound on the given percentile, in nanoseconds: the top of the bucket
+         * it falls in, or the longest duration if that is less.
+         *
+         * @param p The percentile, from 0 to 100
+         */
+        public long percentileNanos( double p ) {
+            long rank = (long) Math.ceil( count * p / 100 );
+            long seen = 0;
+            for( int b = 0; b < buckets.length; b++ ) {
+                seen += buckets[b];
+                if( seen >= rank && seen > 0 )
+                    return Math.min( max, b == 0 ? 0 : (1L << b) - 1 );
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count " + count + ", total " + micros( total ) + " us, mean "
+                    + micros( count == 0 ? 0 : total / count ) + " us, p50 <= " + micros( percentileNanos( 50 ) )
+                    + " us, p99 <= " + micros( percentileNanos( 99 ) ) + " us, max " + micros( max ) + " us";
+        }
+
+        private static String micros( long nanos ) {
+            return String.format( "%.1f", nanos / 1e3 );
+        }
+    }
+
+    private long files;
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+    private final Map<String, Long> entered = new TreeMap<String, Long>();
+    private final Map<String, Histogram> nonterminals = new TreeMap<String, Histogram>();
+
+    public Metrics() {
+        for( int i = 0; i < phases.length; i++ )
+            phases[i] = new Histogram();
+    }
+
+    /** Counts one more file checked. */
+    public void countFile() {
+        files++;
+    }
+
+    /** Records how long a phase of checking one file took. */
+    public void record( Phase phase, long nanos ) {
+        phases[phase.ordinal()].record( nanos );
+    }
+
+    /** Counts an entry into a nonterminal. */
+    public void enter( String nonterminal ) {
+        entered.merge( nonterminal, 1L, Long::sum );
+    }
+
+    /** Records how long a nonterminal took, from entry to completion. */
+    public void complete( String nonterminal, long nanos ) {
+        nonterminals.computeIfAbsent( nonterminal, n -> new Histogram() ).record( nanos );
+    }
+
+    /** Adds everything recorded in another instance to this one. */
+    public void merge( Metrics other ) {
+        files += other.files;
+        for( int i = 0; i < phases.length; i++ )
+            phases[i].merge( other.phases[i] );
+        for( Map.Entry<String, Long> e : other.entered.entrySet() )
+            entered.merge( e.getKey(), e.getValue(), Long::sum );
+        for( Map.Entry<String, Histogram> e : other.nonterminals.entrySet() )
+            nonterminals.computeIfAbsent( e.getKey(), n -> new Histogram() ).merge( e.getValue() );
+    }
+
+    /** The number of files checked. */
+    public long files() {
+        return files;
+    }
+
+    /** The durations of a phase, one a file. */
+    public Histogram phase( Phase phase ) {
+        return phases[phase.ordinal()];
+    }
+
+    /** How many times each nonterminal was entered, by name. */
+    public Map<String, Long> entered() {
+        return entered;
+    }
+
+    /**
+     * The durations of each nonterminal that was completed, by name.  One abandoned
+     * by a syntax error is counted as entered but not timed.
+     */
+    public Map<String, Histogram> nonterminals() {
+        return nonterminals;
+    }
+
+    /**
+     * The summary written at the end of a run, an rggMETRICS line for the files, each
+     * phase that was timed and each nonterminal.
+     */
+    @Override
+    public String toString() {
+        String newline = System.lineSeparator();
+        StringBuilder s = new StringBuilder( "rggMETRICS files " ).append( files );
+        for( Phase phase : Phase.values() )
+            if( phase( phase ).count() > 0 )
+                s.append( newline ).append( "rggMETRICS " ).append( phase.name ).append( ' ' ).append( phase( phase ) );
+        for( Map.Entry<String, Long> e : entered.entrySet() ) {
+            Histogram time = nonterminals.getOrDefault( e.getKey(), new Histogram() );
+            s.append( newline ).append( "rggMETRICS nonterminal " ).append( e.getKey() )
+                    .append( " entered " ).append( e.getValue() ).append( ", " ).append( time );
+        }
+        return s.toString();
+    }
+}
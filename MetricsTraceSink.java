@@ -0,0 +1,124 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * A trace sink that times every nonterminal into a {@link Metrics} and passes each event
+ * on to another sink unchanged.  When the run ends the metrics are printed after the
+ * rest of the trace.
+ *
+ * Like the text trace, a sink is filled by one thread; files checked on others get one
+ * from {@link #fork()}, whose metrics {@link #join(TraceSink)} adds to this one's.
+ */
+public class MetricsTraceSink implements TraceSink {
+    private final TraceSink delegate;
+    private final PrintStream out;
+    private final Metrics metrics = new Metrics();
+
+    /** The nonterminals entered and not yet completed, innermost last, and when each was entered. */
+    private String[] open = new String[64];
+    private long[] started = new long[64];
+    private int depth;
+
+    /**
+     * @param delegate The sink every event is passed on to
+     * @param out Where the metrics are printed on close
+     */
+    public MetricsTraceSink( TraceSink delegate, PrintStream out ) {
+        this.delegate = delegate;
+        this.out = out;
+    }
+
+    /** What has been recorded so far. */
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /** The sink events are passed on to. */
+    public TraceSink delegate() {
+        return delegate;
+    }
+
+    public void insertTerminal( Token token ) {
+        delegate.insertTerminal( token );
+    }
+
+    public void commenceNonterminal( String name ) {
+        metrics.enter( name );
+        if( depth == open.length ) {
+            open = Arrays.copyOf( open, depth * 2 );
+            started = Arrays.copyOf( started, depth * 2 );
+        }
+        open[depth] = name;
+        started[depth++] = System.nanoTime();
+        delegate.commenceNonterminal( name );
+    }
+
+    /** Completes the innermost open nonterminal of this name, dropping any opened inside it that an error abandoned. */
+    public void finishNonterminal( String name ) {
+        long now = System.nanoTime();
+        for( int d = depth - 1; d >= 0; d-- ) {
+            if( open[d].equals( name ) ) {
+                metrics.complete( name, now - started[d] );
+                depth = d;
+                break;
+            }
+        }
+        delegate.finishNonterminal( name );
+    }
+
+    public void addVariable( Variable v ) {
+        delegate.addVariable( v );
+    }
+
+    public void removeVariable( Variable v ) {
+        delegate.removeVariable( v );
+    }
+
+    public void reportSuccess() {
+        delegate.reportSuccess();
+    }
+
+    public void reportError( String explanatoryMessage ) {
+        delegate.reportError( explanatoryMessage );
+    }
+
+    public void reportError( Supplier<String> explanatoryMessage ) {
+        delegate.reportError( explanatoryMessage );
+    }
+
+    public void println( String line ) {
+        delegate.println( line );
+    }
+
+    /** A sink for one file's events and metrics, passing the events to a fork of this one's sink. */
+    public TraceSink fork() {
+        return new MetricsTraceSink( delegate.fork(), out );
+    }
+
+    /** Appends a forked sink's events and adds up its metrics; a sink not forked from this one only has its events appended. */
+    public void join( TraceSink forked ) {
+        if( forked instanceof MetricsTraceSink ) {
+            delegate.join( ((MetricsTraceSink)forked).delegate );
+            metrics.merge( ((MetricsTraceSink)forked).metrics );
+        } else
+            delegate.join( forked );
+    }
+
+    public void flush() {
+        delegate.flush();
+    }
+
+    public void close() {
+        delegate.flush();
+        out.println( metrics );
+        out.flush();
+        delegate.close();
+    }
+
+    /** The text of the sink events are passed on to, for a trace buffered by {@link #fork()}. */
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,236 @@
+import java.util.Arrays;
+
+/**
+ * The grammar checked by SyntaxAnalyser, written out as an LL(1) parse table for
+ * TableSyntaxAnalyser.
+ *
+ * Every grammar symbol is an int code.  Terminals are the class constants from Token,
+ * nonterminals start at FIRST_NONTERMINAL and semantic actions at FIRST_ACTION.  A
+ * production's right hand side may mix all three; actions stand for the variable
+ * bookkeeping the hand-written parser does between accepting terminals.
+ *
+ * Each nonterminal has an entry per lookahead symbol and may also have a default
+ * production, used for any lookahead without an entry.  The defaults play the part of
+ * the hand-written parser's "otherwise carry on" branches, so an error is found at
+ * the same token, and reported with the same message, as it is there.
+ */
+public final class ParseTable {
+    public static final int FIRST_NONTERMINAL = 100;
+
+    public static final int STATEMENT_PART = 100;
+    public static final int STATEMENT_LIST = 101;
+    public static final int STATEMENT_LIST_TAIL = 102;
+    public static final int STATEMENT = 103;
+    public static final int ASSIGNMENT_STATEMENT = 104;
+    public static final int ASSIGNMENT_VALUE = 105;
+    public static final int IF_STATEMENT = 106;
+    public static final int ELSE_PART = 107;
+    public static final int WHILE_STATEMENT = 108;
+    public static final int PROCEDURE_STATEMENT = 109;
+    public static final int UNTIL_STATEMENT = 110;
+    public static final int FOR_STATEMENT = 111;
+    public static final int ARGUMENT_LIST = 112;
+    public static final int ARGUMENT_LIST_TAIL = 113;
+    public static final int CONDITION = 114;
+    public static final int CONDITION_OPERAND = 115;
+    public static final int CONDITIONAL_OPERATOR = 116;
+    public static final int EXPRESSION = 117;
+    public static final int EXPRESSION_TAIL = 118;
+    public static final int TERM = 119;
+    public static final int TERM_TAIL = 120;
+    public static final int FACTOR = 121;
+
+    public static final int FIRST_ACTION = 200;
+
+    /** Remember the identifier being assigned to. */
+    public static final int SAVE_NAME = 200;
+    /** Declare the remembered identifier as a string. */
+    public static final int DECLARE_STRING = 201;
+    /** Declare the remembered identifier as a number. */
+    public static final int DECLARE_NUMBER = 202;
+    /** Remember the variable, if any, the coming expression or term starts with. */
+    public static final int SAVE_OPERAND = 203;
+    /** Forget the remembered operand. */
+    public static final int DROP_OPERAND = 204;
+    /** Forget the remembered operand, failing if it is a string. */
+    public static final int CHECK_OPERAND = 205;
+    /** Fail unless the coming identifier is a known variable. */
+    public static final int CHECK_DEFINED = 206;
+    /** Open the loop's scope. */
+    public static final int BEGIN_FOR = 207;
+    /** Leave the loop's scope, dropping the variables it introduced. */
+    public static final int END_FOR = 208;
+
+    private static final int NONTERMINALS = FACTOR - FIRST_NONTERMINAL + 1;
+    private static final int TERMINALS = Token.forSymbol + 1;
+
+    /** The trace name of each nonterminal, or null for those the hand-written parser has no method for. */
+    private static final String[] names = new String[NONTERMINALS];
+    /** The expected tokens reported when a nonterminal has no production for the lookahead. */
+    private static final String[] expected = new String[NONTERMINALS];
+    /** The productions, by number. */
+    private static int[][] productions = new int[64][];
+    private static int productionCount = 0;
+    /** table[nonterminal][lookahead] is a production number, or -1 for none. */
+    private static final int[][] table = new int[NONTERMINALS][TERMINALS];
+    /** The production used for a lookahead with no entry, or -1 if that is an error. */
+    private static final int[] defaults = new int[NONTERMINALS];
+
+    static {
+        for (int[] row : table) {
+            Arrays.fill(row, -1);
+        }
+        Arrays.fill(defaults, -1);
+
+        name(STATEMENT_PART, "StatementPart");
+        entry(STATEMENT_PART, -1, Token.beginSymbol, STATEMENT_LIST, Token.endSymbol);
+
+        name(STATEMENT_LIST, "StatementList");
+        entry(STATEMENT_LIST, -1, STATEMENT, STATEMENT_LIST_TAIL);
+        entry(STATEMENT_LIST_TAIL, Token.semicolonSymbol, Token.semicolonSymbol, STATEMENT_LIST);
+        entry(STATEMENT_LIST_TAIL, -1);
+
+        name(STATEMENT, "Statement");
+        expect(STATEMENT, Token.identifier, Token.ifSymbol, Token.whileSymbol, Token.callSymbol, Token.doSymbol, Token.forSymbol);
+        entry(STATEMENT, Token.identifier, ASSIGNMENT_STATEMENT);
+        entry(STATEMENT, Token.ifSymbol, IF_STATEMENT);
+        entry(STATEMENT, Token.whileSymbol, WHILE_STATEMENT);
+        entry(STATEMENT, Token.callSymbol, PROCEDURE_STATEMENT);
+        entry(STATEMENT, Token.doSymbol, UNTIL_STATEMENT);
+        entry(STATEMENT, Token.forSymbol, FOR_STATEMENT);
+
+        name(ASSIGNMENT_STATEMENT, "AssignmentStatement");
+        entry(ASSIGNMENT_STATEMENT, -1, SAVE_NAME, Token.identifier, Token.becomesSymbol, ASSIGNMENT_VALUE);
+        entry(ASSIGNMENT_VALUE, Token.stringConstant, Token.stringConstant, DECLARE_STRING);
+        entry(ASSIGNMENT_VALUE, -1, EXPRESSION, DECLARE_NUMBER);
+
+        name(IF_STATEMENT, "IfStatement");
+        entry(IF_STATEMENT, -1, Token.ifSymbol, CONDITION, Token.thenSymbol, STATEMENT_LIST, ELSE_PART, Token.endSymbol, Token.ifSymbol);
+        entry(ELSE_PART, Token.elseSymbol, Token.elseSymbol, STATEMENT_LIST);
+        entry(ELSE_PART, -1);
+
+        name(WHILE_STATEMENT, "WhileStatement");
+        entry(WHILE_STATEMENT, -1, Token.whileSymbol, CONDITION, Token.loopSymbol, STATEMENT_LIST, Token.endSymbol, Token.loopSymbol);
+
+        name(PROCEDURE_STATEMENT, "ProcedureStatement");
+        entry(PROCEDURE_STATEMENT, -1, Token.callSymbol, Token.identifier, Token.leftParenthesis, ARGUMENT_LIST, Token.rightParenthesis);
+
+        name(UNTIL_STATEMENT, "UntilStatement");
+        entry(UNTIL_STATEMENT, -1, Token.doSymbol, STATEMENT_LIST, Token.untilSymbol, CONDITION);
+
+        name(FOR_STATEMENT, "ForStatement");
+        entry(FOR_STATEMENT, -1, Token.forSymbol, Token.leftParenthesis, BEGIN_FOR, ASSIGNMENT_STATEMENT,
+                Token.semicolonSymbol, CONDITION, Token.semicolonSymbol, ASSIGNMENT_STATEMENT, Token.rightParenthesis,
+                Token.doSymbol, STATEMENT_LIST, Token.endSymbol, Token.loopSymbol, END_FOR);
+
+        name(ARGUMENT_LIST, "ArgumentList");
+        entry(ARGUMENT_LIST, -1, Token.identifier, ARGUMENT_LIST_TAIL);
+        entry(ARGUMENT_LIST_TAIL, Token.commaSymbol, Token.commaSymbol, ARGUMENT_LIST);
+        entry(ARGUMENT_LIST_TAIL, -1);
+
+        name(CONDITION, "Condition");
+        entry(CONDITION, -1, Token.identifier, CONDITIONAL_OPERATOR, CONDITION_OPERAND);
+        expect(CONDITION_OPERAND, Token.identifier, Token.numberConstant, Token.stringConstant);
+        entry(CONDITION_OPERAND, Token.identifier, Token.identifier);
+        entry(CONDITION_OPERAND, Token.numberConstant, Token.numberConstant);
+        entry(CONDITION_OPERAND, Token.stringConstant, Token.stringConstant);
+
+        name(CONDITIONAL_OPERATOR, "ConditionalOperator");
+        expect(CONDITIONAL_OPERATOR, Token.greaterThanSymbol, Token.greaterEqualSymbol, Token.equalSymbol,
+                Token.notEqualSymbol, Token.lessThanSymbol, Token.lessEqualSymbol);
+        entry(CONDITIONAL_OPERATOR, Token.greaterThanSymbol, Token.greaterThanSymbol);
+        entry(CONDITIONAL_OPERATOR, Token.greaterEqualSymbol, Token.greaterEqualSymbol);
+        entry(CONDITIONAL_OPERATOR, Token.equalSymbol, Token.equalSymbol);
+        entry(CONDITIONAL_OPERATOR, Token.notEqualSymbol, Token.notEqualSymbol);
+        entry(CONDITIONAL_OPERATOR, Token.lessThanSymbol, Token.lessThanSymbol);
+        entry(CONDITIONAL_OPERATOR, Token.lessEqualSymbol, Token.lessEqualSymbol);
+
+        name(EXPRESSION, "Expression");
+        entry(EXPRESSION, -1, SAVE_OPERAND, TERM, EXPRESSION_TAIL);
+        entry(EXPRESSION_TAIL, Token.plusSymbol, DROP_OPERAND, Token.plusSymbol, EXPRESSION);
+        entry(EXPRESSION_TAIL, Token.minusSymbol, CHECK_OPERAND, Token.minusSymbol, EXPRESSION);
+        entry(EXPRESSION_TAIL, -1, DROP_OPERAND);
+
+        name(TERM, "Term");
+        entry(TERM, -1, SAVE_OPERAND, FACTOR, TERM_TAIL);
+        entry(TERM_TAIL, Token.timesSymbol, CHECK_OPERAND, Token.timesSymbol, TERM);
+        entry(TERM_TAIL, Token.divideSymbol, CHECK_OPERAND, Token.divideSymbol, TERM);
+        entry(TERM_TAIL, -1, DROP_OPERAND);
+
+        name(FACTOR, "Factor");
+        expect(FACTOR, Token.identifier, Token.numberConstant);
+        entry(FACTOR, Token.identifier, CHECK_DEFINED, Token.identifier);
+        entry(FACTOR, Token.numberConstant, Token.numberConstant);
+        entry(FACTOR, Token.leftParenthesis, Token.leftParenthesis, EXPRESSION, Token.rightParenthesis);
+    }
+
+    private ParseTable() {
+    }
+
+    /**
+     * @param nonterminal A nonterminal code
+     * @param lookahead The symbol of the next token
+     * @return the number of the production to expand it by, or -1 if there is none
+     */
+    public static int production(int nonterminal, int lookahead) {
+        int row = nonterminal - FIRST_NONTERMINAL;
+        int p = (lookahead >= 0 && lookahead < TERMINALS) ? table[row][lookahead] : -1;
+        return (p >= 0) ? p : defaults[row];
+    }
+
+    /**
+     * @param production A production number
+     * @return its right hand side, which must not be modified
+     */
+    public static int[] rightHandSide(int production) {
+        return productions[production];
+    }
+
+    /**
+     * @param nonterminal A nonterminal code
+     * @return the name traced on entering and leaving it, or null if it is not traced
+     */
+    public static String name(int nonterminal) {
+        return names[nonterminal - FIRST_NONTERMINAL];
+    }
+
+    /**
+     * @param nonterminal A nonterminal code
+     * @return the expected tokens to report when it cannot be expanded
+     */
+    public static String expected(int nonterminal) {
+        return expected[nonterminal - FIRST_NONTERMINAL];
+    }
+
+    private static void name(int nonterminal, String name) {
+        names[nonterminal - FIRST_NONTERMINAL] = name;
+    }
+
+    private static void expect(int nonterminal, int... symbols) {
+        StringBuilder list = new StringBuilder();
+        for (int symbol : symbols) {
+            if (list.length() > 0) {
+                list.append('/');
+            }
+            list.append(Token.getName(symbol));
+        }
+        expected[nonterminal - FIRST_NONTERMINAL] = list.toString();
+    }
+
+    /**
+     * Adds a production for a nonterminal, used when the lookahead is the given symbol,
+     * or for any lookahead without an entry of its own if the symbol is -1.
+     */
+    private static void entry(int nonterminal, int lookahead, int... rightHandSide) {
+        if (productionCount == productions.length) {
+            productions = Arrays.copyOf(productions, productionCount * 2);
+        }
+        productions[productionCount] = rightHandSide;
+        if (lookahead < 0) {
+            defaults[nonterminal - FIRST_NONTERMINAL] = productionCount;
+        } else {
+            table[nonterminal - FIRST_NONTERMINAL][lookahead] = productionCount;
+        }
+        productionCount++;
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the throughput of the recursive descent SyntaxAnalyser with the table-driven
+ * TableSyntaxAnalyser over the same programs, with tracing switched off.
+ *
+ * Usage: java ParserBenchmark [directory [rounds]]
+ * where directory defaults to "Programs Folder" and rounds to 20.
+ */
+public class ParserBenchmark {
+    private static final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    /** Builds the parser under test for a file. */
+    interface Parser {
+        AbstractSyntaxAnalyser over(String fileName);
+    }
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : "Programs Folder");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<String> files = new ArrayList<String>();
+        long bytes = 0;
+        for (File f : directory.listFiles()) {
+            if (f.isFile()) {
+                files.add(f.getPath());
+                bytes += f.length();
+            }
+        }
+        System.out.println(files.size() + " files, " + bytes + " bytes, " + rounds + " rounds");
+
+        // alternate the two so neither gets all the warm-up
+        for (int pass = 0; pass < 2; pass++) {
+            boolean report = pass == 1;
+            run("recursive", SyntaxAnalyser::new, files, bytes, rounds, report);
+            run("table", TableSyntaxAnalyser::new, files, bytes, rounds, report);
+        }
+    }
+
+    private static void run(String label, Parser parser, List<String> files, long bytes, int rounds, boolean report) throws IOException {
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String f : files) {
+                parser.over(f).parse(discard, NullTraceSink.INSTANCE);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (report) {
+            System.out.printf("%-10s %10.0f files/s %10.2f MB/s%n", label,
+                    files.size() * rounds / seconds, bytes * rounds / seconds / 1e6);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Writes random programs in the checked language, for scale and stress testing, with the
+ * size, the depth of nesting, the number of distinct identifiers and the share of
+ * programs with errors all chosen on the command line.  The same seed always gives the
+ * same programs, and each program depends only on the seed and its own number.
+ *
+ * Valid programs only use variables that have been assigned in a block still open, so
+ * they stay valid however variables are scoped.  An invalid program has between one and
+ * three simple statements replaced with broken ones: a missing ';', 'then' or 'loop', a
+ * variable never assigned, arithmetic on a string or a stray ')'.
+ *
+ * Usage: java ProgramGenerator [options]
+ *   -seed N          the seed (default 1)
+ *   -count N         how many programs to write (default 10)
+ *   -lines N         about how many lines each program has (default 100)
+ *   -depth N         how deeply blocks nest; every program reaches this depth (default 4)
+ *   -identifiers N   how many distinct variable names to draw from (default 20)
+ *   -errors RATE     the share of programs with errors, from 0 to 1 (default 0.5)
+ *   -out DIR         where to write program0, program1, ... (default "Generated Programs")
+ *   -verify          check each program afterwards and report any the checker disagrees with
+ */
+public class ProgramGenerator {
+    private static final String[] RELATIONS = {"<", "<=", ">", ">=", "=", "/="};
+    /** Deeper blocks are indented no further, so very deep programs stay a sensible size. */
+    private static final int MAX_INDENT = 10;
+
+    private static final int IF = 0;
+    private static final int WHILE = 1;
+    private static final int DO = 2;
+    private static final int FOR = 3;
+
+    /** An open if, while, do or for statement. */
+    private static class Block {
+        final int kind;
+        /** Has the statement list being written inside it got a statement yet? */
+        boolean hasStatement;
+        boolean hasElse;
+        /** How many variables were assigned when the current statement list began. */
+        final int numberMark;
+        final int stringMark;
+
+        Block(int kind, int numberMark, int stringMark) {
+            this.kind = kind;
+            this.numberMark = numberMark;
+            this.stringMark = stringMark;
+        }
+    }
+
+    private final int lines;
+    private final int depth;
+    private final int identifiers;
+
+    /* The program being written. */
+    private Random random;
+    private StringBuilder program;
+    private Deque<Block> open;
+    private boolean topHasStatement;
+    private int lineCount;
+    /** Ordinal of the next simple statement, and those to be broken. */
+    private int statement;
+    private Set<Integer> errorsAt;
+    private int errorsMade;
+    /** Variables assigned in blocks still open, most recent last, and all of them. */
+    private List<String> numbers;
+    private List<String> strings;
+    private Set<String> assigned;
+
+    /**
+     * @param lines About how many lines each program should have
+     * @param depth How deeply blocks should nest
+     * @param identifiers How many distinct variable names to use
+     */
+    public ProgramGenerator(int lines, int depth, int identifiers) {
+        this.lines = Math.max(lines, 3);
+        this.depth = Math.max(depth, 0);
+        this.identifiers = Math.max(identifiers, 1);
+    }
+
+    /**
+     * Writes one program.
+     *
+     * @param random The source of all choices made
+     * @param valid Whether the program should be accepted by the checker
+     * @return the program's text
+     */
+    public String generate(Random random, boolean valid) {
+        this.random = random;
+        program = new StringBuilder(lines * 24);
+        open = new ArrayDeque<Block>();
+        topHasStatement = false;
+        lineCount = 2;
+        statement = 0;
+        errorsAt = new HashSet<Integer>();
+        errorsMade = 0;
+        numbers = new ArrayList<String>();
+        strings = new ArrayList<String>();
+        assigned = new HashSet<String>();
+
+        if (!valid) {
+            // early enough that a program of the requested size reaches them, and no
+            // more than there are statements to put them in
+            int sites = Math.max(1, lines / 4);
+            int errors = Math.min(1 + random.nextInt(3), sites);
+            while (errorsAt.size() < errors) {
+                errorsAt.add(random.nextInt(sites));
+            }
+        }
+
+        program.append("begin\n");
+        separate();
+        indent();
+        program.append("v0 := 0");
+        assign("v0", false);
+        lineCount++;
+
+        while (open.size() < depth) {
+            openBlock();
+        }
+        while (lineCount < lines) {
+            double c = random.nextDouble();
+            if (!open.isEmpty() && open.peek().hasStatement && c < 0.15) {
+                closeBlock();
+            } else if (open.size() < depth && c < 0.35) {
+                openBlock();
+            } else {
+                simpleStatement();
+            }
+        }
+        while (!open.isEmpty()) {
+            closeBlock();
+        }
+
+        program.append("\nend\n");
+        if (!valid && errorsMade == 0) {
+            // too short to reach an error site; leave the final 'end' out instead
+            program.setLength(program.length() - "end\n".length());
+        }
+        return program.toString();
+    }
+
+    /** Starts a statement in the current list, after a ';' if it is not the first. */
+    private void separate() {
+        boolean first = open.isEmpty() ? !topHasStatement : !open.peek().hasStatement;
+        if (!first) {
+            program.append(" ;\n");
+        }
+        if (open.isEmpty()) {
+            topHasStatement = true;
+        } else {
+            open.peek().hasStatement = true;
+        }
+    }
+
+    private void indent() {
+        for (int i = Math.min(open.size() + 1, MAX_INDENT); i > 0; i--) {
+            program.append("    ");
+        }
+    }
+
+    /** An assignment, call, or a broken statement where an error is due. */
+    private void simpleStatement() {
+        if (errorsAt.contains(statement++)) {
+            brokenStatement();
+            return;
+        }
+        separate();
+        indent();
+        if (random.nextDouble() < 0.2) {
+            program.append("call p").append(random.nextInt(10)).append('(');
+            int arguments = 1 + random.nextInt(4);
+            for (int i = 0; i < arguments; i++) {
+                if (i > 0) {
+                    program.append(", ");
+                }
+                program.append(anyVariable());
+            }
+            program.append(')');
+        } else {
+            int k = random.nextInt(identifiers);
+            String name = "v" + k;
+            if (isString(k)) {
+                program.append(name).append(" := \"s").append(random.nextInt(1000)).append('"');
+                assign(name, true);
+            } else {
+                program.append(name).append(" := ").append(expression(0));
+                assign(name, false);
+            }
+        }
+        lineCount++;
+    }
+
+    /** A statement the checker rejects, which assigns nothing. */
+    private void brokenStatement() {
+        errorsMade++;
+        int kind = random.nextInt(6);
+        boolean first = open.isEmpty() ? !topHasStatement : !open.peek().hasStatement;
+        if (kind == 0 && first) {
+            // nothing comes before it for a ';' to be missing from
+            kind = 5;
+        }
+        if (kind == 0) {
+            program.append('\n');
+        } else {
+            separate();
+        }
+        indent();
+        switch (kind) {
+            case 0:
+                program.append("v0 := ").append(number());
+                break;
+            case 1:
+                program.append("v0 := ").append(number()).append(" + undefined").append(random.nextInt(identifiers));
+                break;
+            case 2:
+                if (!strings.isEmpty()) {
+                    program.append("v0 := ").append(strings.get(random.nextInt(strings.size()))).append(" * ").append(number());
+                } else {
+                    program.append("v0 := undefined").append(random.nextInt(identifiers));
+                }
+                break;
+            case 3:
+                program.append("if ").append(condition()).append(" v0 := 0 end if");
+                break;
+            case 4:
+                program.append("while ").append(condition()).append(" v0 := 0 end loop");
+                break;
+            default:
+                program.append(')');
+                break;
+        }
+        lineCount++;
+    }
+
+    private void openBlock() {
+        separate();
+        indent();
+        int kind = random.nextInt(4);
+        String header;
+        String counter = null;
+        switch (kind) {
+            case IF:
+                header = "if " + condition() + " then";
+                break;
+            case WHILE:
+                header = "while " + condition() + " loop";
+                break;
+            case DO:
+                header = "do";
+                break;
+            default:
+                counter = random.nextDouble() < 0.5 ? numbers.get(random.nextInt(numbers.size())) : "v" + numericIdentifier();
+                header = "for ( " + counter + " := " + expression(0) + " ; " + counter + " < " + number() + " ; "
+                        + counter + " := " + counter + " + 1 ) do";
+                break;
+        }
+        program.append(header).append('\n');
+        open.push(new Block(kind, numbers.size(), strings.size()));
+        if (counter != null) {
+            assign(counter, false);
+        }
+        lineCount++;
+    }
+
+    private void closeBlock() {
+        Block block = open.peek();
+        if (!block.hasStatement) {
+            simpleStatement();
+        }
+        forget(block);
+        if (block.kind == IF && !block.hasElse && random.nextDouble() < 0.3) {
+            block.hasElse = true;
+            block.hasStatement = false;
+            program.append('\n');
+            open.pop();
+            indent();
+            open.push(block);
+            program.append("else\n");
+            lineCount++;
+            return;
+        }
+
+        open.pop();
+        program.append('\n');
+        indent();
+        switch (block.kind) {
+            case IF:
+                program.append("end if");
+                break;
+            case DO:
+                program.append("until ").append(condition());
+                break;
+            default:
+                program.append("end loop");
+                break;
+        }
+        lineCount++;
+    }
+
+    /** An arithmetic expression over assigned numbers. */
+    private String expression(int nesting) {
+        StringBuilder e = new StringBuilder();
+        int terms = 1 + random.nextInt(3);
+        for (int t = 0; t < terms; t++) {
+            if (t > 0) {
+                e.append(random.nextBoolean() ? " + " : " - ");
+            }
+            term(e, nesting, t == terms - 1);
+        }
+        return e.toString();
+    }
+
+    /**
+     * A term.  The checker looks up the first token of a term followed by an operator,
+     * and of a factor followed by one, as a variable, so those are always variables.
+     */
+    private void term(StringBuilder e, int nesting, boolean lastTerm) {
+        int factors = 1 + random.nextInt(3);
+        for (int f = 0; f < factors; f++) {
+            if (f > 0) {
+                e.append(random.nextBoolean() ? " * " : " / ");
+            }
+            boolean free = f == factors - 1 && (f > 0 || lastTerm);
+            double c = random.nextDouble();
+            if (!free || c < 0.6) {
+                e.append(numbers.get(random.nextInt(numbers.size())));
+            } else if (c < 0.85 || nesting >= 2) {
+                e.append(number());
+            } else {
+                e.append("( ").append(expression(nesting + 1)).append(" )");
+            }
+        }
+    }
+
+    private String condition() {
+        StringBuilder c = new StringBuilder(anyVariable());
+        c.append(' ').append(RELATIONS[random.nextInt(RELATIONS.length)]).append(' ');
+        double r = random.nextDouble();
+        if (r < 0.4) {
+            c.append(anyVariable());
+        } else if (r < 0.8) {
+            c.append(number());
+        } else {
+            c.append("\"s").append(random.nextInt(1000)).append('"');
+        }
+        return c.toString();
+    }
+
+    private String anyVariable() {
+        int n = random.nextInt(numbers.size() + strings.size());
+        return n < numbers.size() ? numbers.get(n) : strings.get(n - numbers.size());
+    }
+
+    private String number() {
+        return Integer.toString(random.nextInt(1000));
+    }
+
+    /** Every fourth name holds strings, the rest numbers. */
+    private static boolean isString(int k) {
+        return k % 4 == 3;
+    }
+
+    private int numericIdentifier() {
+        int k = random.nextInt(identifiers);
+        return isString(k) ? k - 1 : k;
+    }
+
+    private void assign(String name, boolean string) {
+        if (assigned.add(name)) {
+            (string ? strings : numbers).add(name);
+        }
+    }
+
+    /** Forgets the variables first assigned inside a block's current statement list. */
+    private void forget(Block block) {
+        while (numbers.size() > block.numberMark) {
+            assigned.remove(numbers.remove(numbers.size() - 1));
+        }
+        while (strings.size() > block.stringMark) {
+            assigned.remove(strings.remove(strings.size() - 1));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        int count = 10;
+        int lines = 100;
+        int depth = 4;
+        int identifiers = 20;
+        double errorRate = 0.5;
+        File out = new File("Generated Programs");
+        boolean verify = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-count") && i + 1 < args.length) {
+                count = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-lines") && i + 1 < args.length) {
+                lines = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-depth") && i + 1 < args.length) {
+                depth = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-identifiers") && i + 1 < args.length) {
+                identifiers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-errors") && i + 1 < args.length) {
+                errorRate = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-out") && i + 1 < args.length) {
+                out = new File(args[++i]);
+            } else if (args[i].equals("-verify")) {
+                verify = true;
+            } else {
+                System.err.println("unknown option " + args[i]);
+                System.exit(1);
+            }
+        }
+
+        Files.createDirectories(out.toPath());
+        ProgramGenerator generator = new ProgramGenerator(lines, depth, identifiers);
+        int invalid = 0;
+        int disagreements = 0;
+        long bytes = 0;
+        for (int i = 0; i < count; i++) {
+            Random random = new Random(seed + i * 0x9E3779B97F4A7C15L);
+            boolean valid = random.nextDouble() >= errorRate;
+            String text = generator.generate(random, valid);
+            File file = new File(out, "program" + i);
+            Files.writeString(file.toPath(), text);
+            bytes += text.length();
+            if (!valid) {
+                invalid++;
+            }
+
+            if (verify) {
+                try {
+                    boolean accepted = SyntaxAnalyser.check(file.getPath(), text).isEmpty();
+                    if (accepted != valid) {
+                        System.err.println(file + " was " + (accepted ? "accepted" : "rejected"));
+                        disagreements++;
+                    }
+                } catch (StackOverflowError e) {
+                    System.err.println(file + " is nested too deeply to check; try a larger -Xss");
+                    disagreements++;
+                }
+            }
+        }
+        System.out.println("wrote " + count + " programs (" + invalid + " with errors), " + bytes + " bytes, to " + out);
+        if (disagreements > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A persistent cache of checking results, so a program that has not changed since an
+ * earlier run is not lexed and parsed again.
+ *
+ * Entries are keyed by a SHA-256 hash of the program's name and content, the checker
+ * version and the options that change its output.  Each holds the res.txt entry and,
+ * when the run wrote a text trace, the gzipped rgg* trace, as files named after the key
+ * in the cache directory.  Once the entries exceed the size limit the least recently
+ * used are deleted; last-modified times carry the order over to the next run.
+ */
+public class ResultCache {
+    /**
+     * Changes whenever the grammar, the trace or the error messages do, so entries
+     * written by an older checker are never served.  Any change to what a trace holds
+     * or to which programs are accepted must bump it.
+     *
+     * 2: for statements declare their variable in a scope of their own.
+     * 3: an expression may start with a number before '-', '*' or '/'.
+     */
+    static final String VERSION = "3";
+
+    private static final String RES = ".res";
+    private static final String TRACE = ".trace.gz";
+
+    /** One cached result. */
+    public static class Entry {
+        /** The res.txt entry. */
+        public final byte[] res;
+        /** The trace, or null if it was not kept. */
+        public final String trace;
+
+        Entry( byte[] res, String trace ) {
+            this.res = res;
+            this.trace = trace;
+        }
+    }
+
+    private final File directory;
+    private final long maxBytes;
+    private final String mode;
+
+    /** Bytes on disk per key, least recently used first. */
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<String, Long>( 16, 0.75f, true );
+    private long totalBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Opens the cache in a directory, creating it if need be.
+     *
+     * @param directory Where the entries are kept
+     * @param maxBytes The most the entries may take up on disk
+     * @param mode The options that affect the results, kept apart in the key
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ResultCache( File directory, long maxBytes, String mode ) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.mode = mode;
+
+        Files.createDirectories( directory.toPath() );
+        File[] files = directory.listFiles( ( dir, name ) -> name.endsWith( RES ) );
+        if( files == null )
+            throw new IOException( "cannot list " + directory );
+        List<File> entries = new ArrayList<File>( List.of( files ) );
+        entries.sort( Comparator.comparingLong( File::lastModified ) );
+        for( File f : entries ) {
+            String key = f.getName().substring( 0, f.getName().length() - RES.length() );
+            long size = f.length() + traceFile( key ).length();
+            sizes.put( key, size );
+            totalBytes += size;
+        }
+        evict();
+    }
+
+    /**
+     * The key for a program.
+     *
+     * @param name The program's file name, which appears in its results
+     * @param source The program's content
+     */
+    public String key( String name, byte[] source ) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        } catch( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
+        }
+        String header = VERSION + '\0' + mode + '\0' + System.lineSeparator() + '\0'
+                + Charset.defaultCharset().name() + '\0' + name + '\0';
+        digest.update( header.getBytes( StandardCharsets.UTF_8 ) );
+        digest.update( source );
+
+        StringBuilder hex = new StringBuilder( 64 );
+        for( byte b : digest.digest() )
+            hex.append( Character.forDigit( (b >> 4) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+        return hex.toString();
+    }
+
+    /**
+     * Looks a program up.
+     *
+     * @param key The program's key
+     * @param needTrace Whether only an entry that kept its trace will do
+     * @return the entry, or null on a miss
+     */
+    public synchronized Entry get( String key, boolean needTrace ) {
+        if( sizes.get( key ) == null || (needTrace && !traceFile( key ).exists()) ) {
+            misses++;
+            return null;
+        }
+        try {
+            byte[] res = Files.readAllBytes( resFile( key ).toPath() );
+            String trace = null;
+            if( needTrace ) {
+                try( InputStream in = new GZIPInputStream( Files.newInputStream( traceFile( key ).toPath() ) ) ) {
+                    trace = new String( in.readAllBytes(), StandardCharsets.UTF_8 );
+                }
+            }
+            resFile( key ).setLastModified( System.currentTimeMillis() );
+            hits++;
+            return new Entry( res, trace );
+        } catch( IOException e ) {
+            // deleted or damaged under us, so check the program again
+            remove( key );
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Stores a program's result, evicting older entries if the cache grows too large.
+     *
+     * @param key The program's key
+     * @param res The res.txt entry
+     * @param trace The trace, or null not to keep it
+     * @throws IOException if the entry cannot be written
+     */
+    public synchronized void put( String key, byte[] res, String trace ) throws IOException {
+        remove( key );
+        long size = write( resFile( key ), res );
+        if( trace != null ) {
+            ByteArrayOutputStream gz = new ByteArrayOutputStream();
+            try( OutputStream out = new GZIPOutputStream( gz ) ) {
+                out.write( trace.getBytes( StandardCharsets.UTF_8 ) );
+            }
+            size += write( traceFile( key ), gz.toByteArray() );
+        }
+        sizes.put( key, size );
+        totalBytes += size;
+        evict();
+    }
+
+    /**
+     * Prints the hit and miss counts.
+     */
+    public synchronized void printStatistics( PrintStream out ) {
+        out.println( "cache " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+                + sizes.size() + " entries in " + totalBytes + " bytes" );
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Deletes least recently used entries until the rest fit. */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = sizes.entrySet().iterator();
+        while( totalBytes > maxBytes && eldest.hasNext() ) {
+            Map.Entry<String, Long> e = eldest.next();
+            eldest.remove();
+            totalBytes -= e.getValue();
+            resFile( e.getKey() ).delete();
+            traceFile( e.getKey() ).delete();
+            evictions++;
+        }
+    }
+
+    private void remove( String key ) {
+        Long size = sizes.remove( key );
+        if( size != null )
+            totalBytes -= size;
+        resFile( key ).delete();
+        traceFile( key ).delete();
+    }
+
+    /** Writes a whole file at once, so a reader never sees it half written. */
+    private long write( File f, byte[] bytes ) throws IOException {
+        File tmp = File.createTempFile( f.getName(), ".tmp", directory );
+        try {
+            Files.write( tmp.toPath(), bytes );
+            Files.move( tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            tmp.delete();
+        }
+        return bytes.length;
+    }
+
+    private File resFile( String key ) {
+        return new File( directory, key + RES );
+    }
+
+    private File traceFile( String key ) {
+        return new File( directory, key + TRACE );
+    }
+}
@@ -1,4 +1,11 @@
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Supplier;
 /**
  * Syntax Analyser for Compiler
  *
@@ -23,6 +30,133 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
         }
     }
 
+    /**
+     * Class Constructor
+     * Takes in a name for the source and the source itself, which need not be a file
+     *
+     * @param name
+     * @param source
+     */
+    public SyntaxAnalyser(String name, Reader source) {
+        this(name, new LexicalAnalyser(name, source));
+    }
+
+    /**
+     * Class Constructor
+     * Takes in a name for the source and the program text, already in memory
+     *
+     * @param name
+     * @param source
+     */
+    public SyntaxAnalyser(String name, CharSequence source) {
+        this(name, new LexicalAnalyser(name, source));
+    }
+
+    /**
+     * Class Constructor
+     * Takes in a name for the source and the program text, already in memory
+     *
+     * @param name
+     * @param source
+     */
+    public SyntaxAnalyser(String name, char[] source) {
+        this(name, new LexicalAnalyser(name, source));
+    }
+
+    /**
+     * Class Constructor
+     * Takes in a name for the source and the program, encoded in the platform charset
+     *
+     * @param name
+     * @param source
+     */
+    public SyntaxAnalyser(String name, ByteBuffer source) {
+        this(name, new LexicalAnalyser(name, source));
+    }
+
+    /**
+     * Class Constructor
+     * Takes in a name for the source and a LexicalAnalyser, or any other source of
+     * tokens, already set up over it
+     *
+     * @param name
+     * @param lex
+     */
+    public SyntaxAnalyser(String name, TokenSource lex) {
+        this.fileName = name;
+        this.lex = lex;
+    }
+
+    /**
+     * Points the analyser at another source of tokens, keeping what it can for reuse
+     *
+     * @param name
+     * @param lex
+     */
+    @Override
+    public void reset(String name, TokenSource lex) {
+        super.reset(name, lex);
+        this.fileName = name;
+    }
+
+    /**
+     * Checks a program held in memory, without tracing it or touching the disk
+     *
+     * @param name the name error messages give the program
+     * @param source
+     * @return the errors found, none if the program is accepted
+     */
+    public static List<CompilationException> check(String name, CharSequence source) {
+        return checkInMemory(new SyntaxAnalyser(name, source));
+    }
+
+    /**
+     * Checks a program held in memory, without tracing it or touching the disk
+     *
+     * @param name the name error messages give the program
+     * @param source
+     * @return the errors found, none if the program is accepted
+     */
+    public static List<CompilationException> check(String name, char[] source) {
+        return checkInMemory(new SyntaxAnalyser(name, source));
+    }
+
+    /**
+     * Checks a program held in memory, encoded in the platform charset, without tracing it
+     * or touching the disk
+     *
+     * @param name the name error messages give the program
+     * @param source
+     * @return the errors found, none if the program is accepted
+     */
+    public static List<CompilationException> check(String name, ByteBuffer source) {
+        return checkInMemory(new SyntaxAnalyser(name, source));
+    }
+
+    /**
+     * Checks a program read from a stream, without tracing it
+     *
+     * @param name the name error messages give the program
+     * @param source
+     * @return the errors found, none if the program is accepted
+     * @throws IOException if the source cannot be read
+     */
+    public static List<CompilationException> check(String name, Reader source) throws IOException {
+        SyntaxAnalyser syn = new SyntaxAnalyser(name, source);
+        syn.parse(new PrintStream(OutputStream.nullOutputStream()), NullTraceSink.INSTANCE);
+        return syn.getErrors();
+    }
+
+    private static List<CompilationException> checkInMemory(SyntaxAnalyser syn) {
+        try {
+            syn.parse(new PrintStream(OutputStream.nullOutputStream()), NullTraceSink.INSTANCE);
+        } catch (IOException e) {
+            // nothing in memory can fail to be read
+            throw new UncheckedIOException(e);
+        }
+        return syn.getErrors();
+    }
+
     /**
      * Grammar for statement part:
      *    Starts with begin symbol terminal (terminal)
@@ -46,20 +180,49 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
      *    Goes into statement function (Non-terminal)
      *    IF the next symbol is a ';',
      *       Accepts ';' (terminal)
-     *       then recur itself (Non-terminal)
+     *       then goes round again (Non-terminal)
      *    otherwise continue
      *
+     * The rule is right recursive, so each further statement opens a nested StatementList;
+     * it is parsed with a loop that counts them and closes them all at the end, which gives
+     * the same trace as recursing without using stack for every statement.
+     *
+     * When recovering from errors, a statement that fails is skipped up to the next
+     * synchronising token: at 'if' the next statement starts there, after 'loop' (the
+     * end of a broken while header) the loop body is parsed as further statements,
+     * at ';' the list carries on as usual, and at 'end' or EOF the list ends.  Whatever
+     * the failed statement had begun is finished first, so the trace stays nested.
+     *
      * @throws IOException
      * @throws CompilationException
      */
     public void _statementList_() throws IOException, CompilationException {
-        myGenerate.commenceNonterminal("StatementList");
-        _statement_();
-        if(nextToken.symbol == Token.semicolonSymbol) {
+        int depth = 0;
+        while (true) {
+            myGenerate.commenceNonterminal("StatementList");
+            depth++;
+            int open = myGenerate.openNonterminals();
+            try {
+                _statement_();
+            } catch (CompilationException e) {
+                recover(e);
+                myGenerate.finishNonterminals(open);
+                if (nextToken.symbol == Token.ifSymbol) {
+                    continue;
+                }
+                if (nextToken.symbol == Token.loopSymbol) {
+                    nextToken = lex.getNextToken();
+                    continue;
+                }
+            }
+            if (nextToken.symbol != Token.semicolonSymbol) {
+                break;
+            }
             acceptTerminal(Token.semicolonSymbol);
-            _statementList_();
         }
-        myGenerate.finishNonterminal("StatementList");
+        for (; depth > 0; depth--) {
+            myGenerate.finishNonterminal("StatementList");
+        }
     }
 
     /**
@@ -103,7 +266,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
                 _forStatement_();
                 break;
             default:
-                reportError(nextToken, errorMessage(nextToken, Token.getName(Token.identifier) + "/" + Token.getName(Token.ifSymbol) + "/" + Token.getName(Token.whileSymbol) + "/" + Token.getName(Token.callSymbol) + "/" + Token.getName(Token.doSymbol) + "/" + Token.getName(Token.forSymbol)));
+                reportError(nextToken, errorMessage(nextToken, Token.identifier, Token.ifSymbol, Token.whileSymbol, Token.callSymbol, Token.doSymbol, Token.forSymbol));
         }
         myGenerate.finishNonterminal("Statement");
     }
@@ -114,7 +277,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
      *     If the next symbol is a string constant
      *         accept string constant
      *     else goes into the expression function
-     *     Then creates a variable object to be added to the variables Hashmap in generate class
+     *     Then creates a variable object to be added to the variables table in generate class
      *
      * @throws IOException
      * @throws CompilationException
@@ -128,7 +291,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
         if (nextToken.symbol == Token.stringConstant) {
             acceptTerminal(Token.stringConstant);
             Variable s = new Variable(variableName, Variable.Type.STRING); //declare new variable
-            myGenerate.addVariable(s); //add variable to hashmap
+            myGenerate.addVariable(s); //add variable to the table
         } else {
             _expression_();
             Variable n = new Variable(variableName, Variable.Type.NUMBER);
@@ -243,6 +406,8 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
      *     goes into statement list function
      *     accepts END symbol
      *     accepts LOOP symbol
+     * The statement is a scope: the loop variable, if new, and variables first declared in
+     * the body are dropped at the end of it.
      *
      * @throws IOException
      * @throws CompilationException
@@ -251,8 +416,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
         myGenerate.commenceNonterminal("ForStatement");
         acceptTerminal(Token.forSymbol);
         acceptTerminal(Token.leftParenthesis);
-        String vname = nextToken.text; //get variable name
-        Variable tempV = myGenerate.getVariable(vname); //get variable
+        int scope = myGenerate.enterScope();
         _assignmentStatement_();
         acceptTerminal(Token.semicolonSymbol);
         _condition_();
@@ -263,30 +427,34 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
         _statementList_();
         acceptTerminal(Token.endSymbol);
         acceptTerminal(Token.loopSymbol);
-        //if variable is null, it means that the variable is not in hashmap so its a temp variable
-        //thus remove the name
-        if (tempV == null) {
-            myGenerate.removeVariable(myGenerate.getVariable(vname));
-        }
+        //drop the variables the loop introduced
+        myGenerate.exitScope(scope);
         myGenerate.finishNonterminal("ForStatement");
     }
 
     /**
      * Grammar for argument list statement:
      *     accepts IDENTIFIER
-     *     if its a COMMA symbol then accepts COMMA symbol and go into argument list funciton
+     *     if its a COMMA symbol then accepts COMMA symbol and goes round again
+     * Looped rather than recursive, like the statement list.
      *
      * @throws IOException
      * @throws CompilationException
      */
     public void _argumentList_() throws  IOException, CompilationException {
-        myGenerate.commenceNonterminal("ArgumentList");
-        acceptTerminal(Token.identifier);
-        if (nextToken.symbol == Token.commaSymbol){
+        int depth = 0;
+        while (true) {
+            myGenerate.commenceNonterminal("ArgumentList");
+            depth++;
+            acceptTerminal(Token.identifier);
+            if (nextToken.symbol != Token.commaSymbol) {
+                break;
+            }
             acceptTerminal(Token.commaSymbol);
-            _argumentList_();
         }
-        myGenerate.finishNonterminal("ArgumentList");
+        for (; depth > 0; depth--) {
+            myGenerate.finishNonterminal("ArgumentList");
+        }
     }
 
     /**
@@ -313,7 +481,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
                 acceptTerminal(Token.stringConstant);
                 break;
             default:
-                reportError(nextToken, errorMessage(nextToken, Token.getName(Token.identifier)+ "/" + Token.getName(Token.numberConstant) + "/" + Token.getName(Token.stringConstant)));
+                reportError(nextToken, errorMessage(nextToken, Token.identifier, Token.numberConstant, Token.stringConstant));
         }
         myGenerate.finishNonterminal("Condition");
     }
@@ -352,7 +520,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
                 acceptTerminal(Token.lessEqualSymbol);
                 break;
             default:
-                reportError(nextToken, errorMessage(nextToken, Token.getName(Token.greaterThanSymbol) + "/" + Token.getName(Token.greaterEqualSymbol) + "/" + Token.getName(Token.equalSymbol) + "/" + Token.getName(Token.notEqualSymbol) + "/" + Token.getName(Token.lessThanSymbol) + "/" + Token.getName(Token.lessEqualSymbol)));
+                reportError(nextToken, errorMessage(nextToken, Token.greaterThanSymbol, Token.greaterEqualSymbol, Token.equalSymbol, Token.notEqualSymbol, Token.lessThanSymbol, Token.lessEqualSymbol));
         }
         myGenerate.finishNonterminal("ConditionalOperator");
     }
@@ -360,68 +528,64 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
     /**
      * Grammar for expression statement:
      *     goes into term function
-     *     if next symbol is a '+' or '-' then recur itself
+     *     if next symbol is a '+' or '-' then goes round again
+     * Looped rather than recursive, like the statement list.
      *
      * @throws IOException
      * @throws CompilationException
      */
     public void  _expression_() throws IOException, CompilationException {
-        myGenerate.commenceNonterminal("Expression");
-        Variable tempv = myGenerate.getVariable(nextToken.text); //get variable
-        _term_();
-
-        if(nextToken.symbol == Token.plusSymbol || nextToken.symbol == Token.minusSymbol) {
-            switch(nextToken.symbol) {
-                case Token.plusSymbol:
-                    acceptTerminal(Token.plusSymbol);
-                    _expression_();
-                    break;
-                case Token.minusSymbol:
-                    if (tempv.type != Variable.Type.STRING) { //check if the variable is a string, if it is throw an error
-                        acceptTerminal(Token.minusSymbol);
-                        _expression_();
-                    } else {
-                        reportError(nextToken, "line " + nextToken.lineNumber + " in " + this.fileName+": Invalid operation rules on variable: "+tempv.identifier);
-                    }
-                    break;
-                default:
-                    reportError(nextToken, errorMessage(nextToken, Token.getName(Token.plusSymbol)+ "/" + Token.getName(Token.minusSymbol)));
+        int depth = 0;
+        while (true) {
+            myGenerate.commenceNonterminal("Expression");
+            depth++;
+            Variable tempv = myGenerate.getVariable(nextToken); //get variable, null for a number or bracketed operand
+            _term_();
+
+            if (nextToken.symbol == Token.plusSymbol) {
+                acceptTerminal(Token.plusSymbol);
+            } else if (nextToken.symbol == Token.minusSymbol) {
+                if (tempv == null || tempv.type != Variable.Type.STRING) { //check if the variable is a string, if it is throw an error
+                    acceptTerminal(Token.minusSymbol);
+                } else {
+                    reportError(nextToken, "line " + nextToken.lineNumber + " in " + this.fileName+": Invalid operation rules on variable: "+tempv.identifier);
+                }
+            } else {
+                break;
             }
         }
-        myGenerate.finishNonterminal("Expression");
+        for (; depth > 0; depth--) {
+            myGenerate.finishNonterminal("Expression");
+        }
     }
 
     /**
      * Grammar for term statement
      *     goes into factor function
-     *     if next symbol is '*' or '/' and variable is not a String then recur itself
+     *     if next symbol is '*' or '/' and variable is not a String then goes round again
+     * Looped rather than recursive, like the statement list.
      *
      * @throws IOException
      * @throws CompilationException
      */
     public void _term_() throws  IOException, CompilationException {
-        myGenerate.commenceNonterminal("Term");
-        Variable tempv = myGenerate.getVariable(nextToken.text);
-        _factor_();
-        if (nextToken.symbol == Token.timesSymbol || nextToken.symbol == Token.divideSymbol) {
-            if (tempv.type != Variable.Type.STRING) {
-                switch(nextToken.symbol) {
-                    case Token.divideSymbol:
-                        acceptTerminal(Token.divideSymbol);
-                        _term_();
-                        break;
-                    case Token.timesSymbol:
-                        acceptTerminal(Token.timesSymbol);
-                        _term_();
-                        break;
-                    default:
-                        reportError(nextToken, errorMessage(nextToken, Token.getName(Token.divideSymbol)+ "/" + Token.getName(Token.timesSymbol)));
-                }
-            } else {
+        int depth = 0;
+        while (true) {
+            myGenerate.commenceNonterminal("Term");
+            depth++;
+            Variable tempv = myGenerate.getVariable(nextToken); //null for a number or bracketed operand
+            _factor_();
+            if (nextToken.symbol != Token.timesSymbol && nextToken.symbol != Token.divideSymbol) {
+                break;
+            }
+            if (tempv != null && tempv.type == Variable.Type.STRING) {
                 reportError(nextToken, "line " + nextToken.lineNumber + " in " + this.fileName+": Invalid operation rules on variable: "+tempv.identifier);
             }
+            acceptTerminal(nextToken.symbol);
+        }
+        for (; depth > 0; depth--) {
+            myGenerate.finishNonterminal("Term");
         }
-        myGenerate.finishNonterminal("Term");
     }
 
     /**
@@ -436,7 +600,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
         switch(nextToken.symbol){
             case Token.identifier:
                 myGenerate.commenceNonterminal("Factor");
-                if (myGenerate.getVariable(nextToken.text) != null) { //check if variable exists
+                if (myGenerate.getVariable(nextToken) != null) { //check if variable exists
                     acceptTerminal(Token.identifier);
                 } else {
                     reportError(nextToken, "line " + nextToken.lineNumber + " in " + this.fileName+": Variable "+nextToken.text+" not defined");
@@ -453,7 +617,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
                 acceptTerminal(Token.rightParenthesis);
                 break;
             default:
-                reportError(nextToken, errorMessage(nextToken, Token.getName(Token.identifier)+ "/" + Token.getName(Token.numberConstant)));
+                reportError(nextToken, errorMessage(nextToken, Token.identifier, Token.numberConstant));
         }
         myGenerate.finishNonterminal("Factor");
     }
@@ -469,6 +633,27 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
         return "line " + nextToken.lineNumber + " in " + this.fileName + ": Expected token(s) " + expected + " but found " + Token.getName(token.symbol) + ".";
     }
 
+    /**
+     * Constructs the same message as above, but only when it is first asked for, so an
+     * error that is never printed never pays for naming the expected tokens
+     *
+     * @param token
+     * @param expected the symbols that would have been accepted
+     * @return explanatoryMessage
+     */
+    public Supplier<String> errorMessage(Token token, int... expected) {
+        int line = nextToken.lineNumber;
+        int found = token.symbol;
+        String file = this.fileName;
+        return () -> {
+            StringBuilder names = new StringBuilder(Token.getName(expected[0]));
+            for (int i = 1; i < expected.length; i++) {
+                names.append('/').append(Token.getName(expected[i]));
+            }
+            return "line " + line + " in " + file + ": Expected token(s) " + names + " but found " + Token.getName(found) + ".";
+        };
+    }
+
     /**
      * Accept terminal checks if the token symbol is the correct symbol
      *
@@ -482,7 +667,7 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
             myGenerate.insertTerminal(nextToken);
             nextToken = lex.getNextToken();
         } else {
-            reportError(nextToken, errorMessage(nextToken, Token.getName(symbol)));
+            reportError(nextToken, errorMessage(nextToken, symbol));
         }
     }
 
@@ -496,4 +681,15 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
     public void reportError(Token token, String explanatoryMessage) throws CompilationException {
         myGenerate.reportError(token, explanatoryMessage);
     }
+
+    /**
+     * As above, for a message built only when it is printed
+     *
+     * @param token
+     * @param explanatoryMessage
+     * @throws CompilationException
+     */
+    public void reportError(Token token, Supplier<String> explanatoryMessage) throws CompilationException {
+        myGenerate.reportError(token, explanatoryMessage);
+    }
 }
@@ -0,0 +1,24 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for each syntax error reported through Generate.reportError,
+ * including those recovered from.
+ */
+@Name( "checker.SyntaxError" )
+@Label( "Syntax Error" )
+@Category( "Syntax Checker" )
+@Description( "A syntax error reported by the code generator" )
+public class SyntaxErrorEvent extends Event {
+    @Label( "File" )
+    String file;
+
+    @Label( "Line" )
+    int line;
+
+    @Label( "Message" )
+    String message;
+}
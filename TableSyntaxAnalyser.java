@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Table-driven Syntax Analyser for Compiler
+ *
+ * Parses the same language as SyntaxAnalyser, but from the explicit LL(1) table in
+ * ParseTable with an int stack of symbol codes, instead of one method per nonterminal.
+ * It produces the same trace events and the same error messages.
+ */
+public class TableSyntaxAnalyser extends AbstractSyntaxAnalyser {
+    String fileName;
+
+    /** Grammar symbols still to be matched; a negative entry closes the nonterminal it negates. */
+    private int[] stack = new int[256];
+    /** How many values were saved when each stack entry was pushed. */
+    private int[] heights = new int[256];
+    private int top;
+
+    /** Values saved by actions for the actions that complete them. */
+    private Object[] values = new Object[64];
+    private int valueTop;
+
+    /**
+     * Class Constructor
+     * Takes in the file name and initialises a new LexicalAnalyser for the declared file
+     *
+     * @param fileName
+     */
+    public TableSyntaxAnalyser(String fileName) {
+        this.fileName = fileName;
+
+        try {
+            lex = new LexicalAnalyser(fileName);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Class Constructor
+     * Takes in a name for the source and the source itself, which need not be a file
+     *
+     * @param name
+     * @param source
+     */
+    public TableSyntaxAnalyser(String name, Reader source) {
+        this(name, new LexicalAnalyser(name, source));
+    }
+
+    /**
+     * Class Constructor
+     * Takes in a name for the source and a LexicalAnalyser, or any other source of
+     * tokens, already set up over it
+     *
+     * @param name
+     * @param lex
+     */
+    public TableSyntaxAnalyser(String name, TokenSource lex) {
+        this.fileName = name;
+        this.lex = lex;
+    }
+
+    /**
+     * Points the analyser at another source of tokens, keeping what it can for reuse
+     *
+     * @param name
+     * @param lex
+     */
+    @Override
+    public void reset(String name, TokenSource lex) {
+        super.reset(name, lex);
+        this.fileName = name;
+    }
+
+    /**
+     * Runs the parse table from the statement part until its stack is empty:
+     *     a terminal on top is accepted,
+     *     a nonterminal is replaced by the production the table gives for the next token,
+     *         traced on entry and, through a closing marker pushed beneath it, on exit,
+     *     an action does its variable bookkeeping
+     * When recovering from errors, a failed statement is abandoned by unwinding the stack
+     * to the tail of the statement list it belongs to, which then carries on just as
+     * SyntaxAnalyser's statement list loop does.
+     *
+     * @throws IOException
+     * @throws CompilationException
+     */
+    @Override
+    public void _statementPart_() throws IOException, CompilationException {
+        top = 0;
+        valueTop = 0;
+        push(ParseTable.STATEMENT_PART);
+
+        while (top > 0) {
+            int symbol = stack[--top];
+            try {
+                if (symbol < 0) {
+                    myGenerate.finishNonterminal(ParseTable.name(-symbol));
+                } else if (symbol < ParseTable.FIRST_NONTERMINAL) {
+                    acceptTerminal(symbol);
+                } else if (symbol < ParseTable.FIRST_ACTION) {
+                    expand(symbol);
+                } else {
+                    perform(symbol);
+                }
+            } catch (CompilationException e) {
+                resynchronise(e);
+            }
+        }
+    }
+
+    /**
+     * Abandons the statement an error occurred in, if it is part of a statement list,
+     * finishing the nonterminals it had begun through the closing markers unwound.
+     *
+     * @param e
+     * @throws IOException
+     * @throws CompilationException e again, if it cannot or should not be recovered from
+     */
+    private void resynchronise(CompilationException e) throws IOException, CompilationException {
+        int tail = top - 1;
+        while (tail >= 0 && stack[tail] != ParseTable.STATEMENT_LIST_TAIL) {
+            tail--;
+        }
+        if (!recoverErrors || tail < 0) {
+            throw e;
+        }
+
+        recover(e);
+        for (int i = top - 1; i > tail; i--) {
+            if (stack[i] < 0) {
+                myGenerate.finishNonterminal(ParseTable.name(-stack[i]));
+            }
+        }
+        top = tail + 1;
+        while (valueTop > heights[tail]) {
+            restore();
+        }
+        if (nextToken.symbol == Token.ifSymbol) {
+            stack[tail] = ParseTable.STATEMENT_LIST;
+        } else if (nextToken.symbol == Token.loopSymbol) {
+            nextToken = lex.getNextToken();
+            stack[tail] = ParseTable.STATEMENT_LIST;
+        }
+    }
+
+    /**
+     * Replaces a nonterminal on the stack with the right hand side of its production.
+     *
+     * @param nonterminal
+     * @throws CompilationException if the table has no production for the next token
+     */
+    private void expand(int nonterminal) throws CompilationException {
+        int production = ParseTable.production(nonterminal, nextToken.symbol);
+        if (production < 0) {
+            reportError(nextToken, errorMessage(nextToken, ParseTable.expected(nonterminal)));
+        }
+
+        String name = ParseTable.name(nonterminal);
+        if (name != null) {
+            myGenerate.commenceNonterminal(name);
+            push(-nonterminal);
+        }
+        int[] rightHandSide = ParseTable.rightHandSide(production);
+        for (int i = rightHandSide.length - 1; i >= 0; i--) {
+            push(rightHandSide[i]);
+        }
+    }
+
+    /**
+     * Carries out a semantic action, mirroring what SyntaxAnalyser does at the same point.
+     *
+     * @param action
+     * @throws CompilationException
+     */
+    private void perform(int action) throws CompilationException {
+        switch (action) {
+            case ParseTable.SAVE_NAME:
+                save(nextToken.text);
+                break;
+            case ParseTable.DECLARE_STRING:
+                myGenerate.addVariable(new Variable((String) restore(), Variable.Type.STRING));
+                break;
+            case ParseTable.DECLARE_NUMBER:
+                myGenerate.addVariable(new Variable((String) restore(), Variable.Type.NUMBER));
+                break;
+            case ParseTable.SAVE_OPERAND:
+                save(myGenerate.getVariable(nextToken));
+                break;
+            case ParseTable.DROP_OPERAND:
+                restore();
+                break;
+            case ParseTable.CHECK_OPERAND:
+                Variable tempv = (Variable) restore(); //null for a number or bracketed operand
+                if (tempv != null && tempv.type == Variable.Type.STRING) {
+                    reportError(nextToken, "line " + nextToken.lineNumber + " in " + this.fileName+": Invalid operation rules on variable: "+tempv.identifier);
+                }
+                break;
+            case ParseTable.CHECK_DEFINED:
+                if (myGenerate.getVariable(nextToken) == null) {
+                    reportError(nextToken, "line " + nextToken.lineNumber + " in " + this.fileName+": Variable "+nextToken.text+" not defined");
+                }
+                break;
+            case ParseTable.BEGIN_FOR:
+                save(myGenerate.enterScope());
+                break;
+            case ParseTable.END_FOR:
+                myGenerate.exitScope((Integer) restore());
+                break;
+            default:
+                throw new IllegalStateException("unknown action " + action);
+        }
+    }
+
+    private void push(int symbol) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+            heights = Arrays.copyOf(heights, top * 2);
+        }
+        heights[top] = valueTop;
+        stack[top++] = symbol;
+    }
+
+    private void save(Object value) {
+        if (valueTop == values.length) {
+            values = Arrays.copyOf(values, valueTop * 2);
+        }
+        values[valueTop++] = value;
+    }
+
+    private Object restore() {
+        Object value = values[--valueTop];
+        values[valueTop] = null;
+        return value;
+    }
+
+    /**
+     * Constructs the error message taking in the token and expected tokens as parameters,
+     * only when it is first asked for
+     *
+     * @param token
+     * @param expected
+     * @return explanatoryMessage
+     */
+    public Supplier<String> errorMessage(Token token, String expected) {
+        int line = nextToken.lineNumber;
+        int found = token.symbol;
+        String file = this.fileName;
+        return () -> "line " + line + " in " + file + ": Expected token(s) " + expected + " but found " + Token.getName(found) + ".";
+    }
+
+    /**
+     * Accept terminal checks if the token symbol is the correct symbol
+     *
+     * @param symbol
+     * @throws IOException
+     * @throws CompilationException
+     */
+    @Override
+    public void acceptTerminal(int symbol) throws IOException, CompilationException {
+        if(symbol == nextToken.symbol) {
+            myGenerate.insertTerminal(nextToken);
+            nextToken = lex.getNextToken();
+        } else {
+            reportError(nextToken, errorMessage(nextToken, Token.getName(symbol)));
+        }
+    }
+
+    /**
+     * Function that reports the error and throws compilation exception
+     *
+     * @param token
+     * @param explanatoryMessage
+     * @throws CompilationException
+     */
+    public void reportError(Token token, String explanatoryMessage) throws CompilationException {
+        myGenerate.reportError(token, explanatoryMessage);
+    }
+
+    /**
+     * As above, for a message built only when it is printed
+     *
+     * @param token
+     * @param explanatoryMessage
+     * @throws CompilationException
+     */
+    public void reportError(Token token, Supplier<String> explanatoryMessage) throws CompilationException {
+        myGenerate.reportError(token, explanatoryMessage);
+    }
+}
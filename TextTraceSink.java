@@ -0,0 +1,147 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * A trace sink that writes the rgg* text trace, byte for byte as the generator used
+ * to print it, but through a large buffer instead of one synchronized println per event.
+ */
+public class TextTraceSink implements TraceSink {
+    /** Characters gathered before a write reaches the underlying stream. */
+    private static final int BATCH_SIZE = 1 << 16;
+    private static final String NEWLINE = System.lineSeparator();
+
+    /**
+     * Prints each event to standard output as it happens, as the generator always did,
+     * with no buffer to allocate or flush.  It holds nothing of its own, so one is shared
+     * by everything that has not been given a sink, on any thread.
+     */
+    public static final TextTraceSink STANDARD_OUTPUT = new TextTraceSink( new Writer() {
+        @Override
+        public void write( String s ) {
+            System.out.print( s );
+        }
+
+        @Override
+        public void write( char[] chars, int offset, int length ) {
+            System.out.print( new String( chars, offset, length ) );
+        }
+
+        @Override
+        public void flush() {
+            System.out.flush();
+        }
+
+        @Override
+        public void close() {
+            System.out.flush();
+        }
+    } );
+
+    private final Writer out;
+
+    /**
+     * @param out The stream to write the trace to, in the platform encoding
+     */
+    public TextTraceSink( OutputStream out ) {
+        this( new BufferedWriter( new OutputStreamWriter( out ), BATCH_SIZE ) );
+    }
+
+    /**
+     * @param out The writer to write the trace to
+     */
+    public TextTraceSink( Writer out ) {
+        this.out = out;
+    }
+
+    public void insertTerminal( Token token ) {
+        write( "rggTOKEN " );
+        write( Token.getName( token.symbol ) );
+        if( (token.symbol == Token.identifier) || (token.symbol == Token.numberConstant) || (token.symbol == Token.stringConstant) ) {
+            write( " '" );
+            write( token.text );
+            write( "'" );
+        }
+        write( " on line " );
+        write( Integer.toString( token.lineNumber ) );
+        write( NEWLINE );
+    }
+
+    public void commenceNonterminal( String name ) {
+        write( "rggBEGIN " );
+        write( name );
+        write( NEWLINE );
+    }
+
+    public void finishNonterminal( String name ) {
+        write( "rggEND " );
+        write( name );
+        write( NEWLINE );
+    }
+
+    public void addVariable( Variable v ) {
+        write( "rggDECL " );
+        write( String.valueOf( v ) );
+        write( NEWLINE );
+    }
+
+    public void removeVariable( Variable v ) {
+        write( "rggDROP " );
+        write( String.valueOf( v ) );
+        write( NEWLINE );
+    }
+
+    public void reportSuccess() {
+        println( "rggSUCCESS" );
+    }
+
+    public void reportError( String explanatoryMessage ) {
+        write( "rggERROR " );
+        write( explanatoryMessage );
+        write( NEWLINE );
+    }
+
+    public void println( String line ) {
+        write( line );
+        write( NEWLINE );
+    }
+
+    /** Buffers one file's trace in memory. */
+    public TraceSink fork() {
+        return new TextTraceSink( new StringWriter() );
+    }
+
+    public void join( TraceSink forked ) {
+        write( forked.toString() );
+    }
+
+    /** The text of a trace buffered by {@link #fork()}. */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    public void flush() {
+        try {
+            out.flush();
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    public void close() {
+        flush();
+    }
+
+    private void write( String s ) {
+        try {
+            out.write( s );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
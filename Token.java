@@ -66,6 +66,9 @@ public class Token
 	public String text ;
 	/** The line number of the original text in the source file. */
 	public int lineNumber ;
+	/** For an identifier, its number in the Identifiers of the source it came
+	  from; -1 for any other token, or if the source does not number them. */
+	public int id = -1 ;
 
 	/** Constructs a new token with a given token type and line number.
 
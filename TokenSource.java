@@ -0,0 +1,32 @@
+import java.io.IOException;
+
+/**
+ * Where a syntax analyser takes its tokens from: a LexicalAnalyser scanning the
+ * source as it goes, or a TokenStream already lexed in full.
+ */
+public interface TokenSource {
+    /**
+     * The next token; once the end of the source is reached, a token for
+     * Token.eofSymbol every time.  A source may hand back the same Token
+     * object each call, so it is only good until the next one.
+     *
+     * @throws IOException if the source cannot be read
+     */
+    Token getNextToken() throws IOException;
+
+    /** The name the source is reported under. */
+    String getFilename();
+
+    /** The table the ids of the source's identifier tokens refer to. */
+    Identifiers getIdentifiers();
+
+    /** How many characters of source the tokens have been read from so far, or -1 if the source cannot tell. */
+    default long getCharactersRead() {
+        return -1;
+    }
+
+    /** The size of the source in bytes, or -1 if it was not read from bytes or the source cannot tell. */
+    default long getSourceSize() {
+        return -1;
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A whole program's tokens, held as parallel int arrays rather than as Token objects.
+ *
+ * Token i has a symbol, a line number, an identifier number, and the start and length
+ * of its text in a char buffer holding the text of every token one after another, so a
+ * token costs twenty bytes and its characters rather than a Token, a String and a char
+ * array.  Identifiers are numbered in the Identifiers of the analyser they were lexed by.  The arrays
+ * grow a chunk at a time, so a long program is never copied to make room.
+ *
+ * Parsers read it through cursor(), which hands back one Token, updated in place.
+ */
+public class TokenStream {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK - 1;
+
+    private final String name;
+    private final Identifiers identifiers;
+    /** The characters of source read() lexed the tokens from. */
+    private long characters;
+    /** The size in bytes of the source they were lexed from, -1 if not known. */
+    private long sourceSize = -1;
+
+    private int[][] symbols = new int[1][];
+    private int[][] lines = new int[1][];
+    private int[][] starts = new int[1][];
+    private int[][] lengths = new int[1][];
+    private int[][] ids = new int[1][];
+    private int size;
+
+    private char[] text = new char[CHUNK];
+    private int textSize;
+
+    /**
+     * @param name The name the program is reported under
+     * @param identifiers The table the identifier numbers of the tokens added refer to
+     */
+    public TokenStream( String name, Identifiers identifiers ) {
+        this.name = name;
+        this.identifiers = identifiers;
+    }
+
+    /**
+     * Lexes a program to the end.
+     *
+     * @param lex A lexical analyser at the start of the program
+     * @return its tokens, ending with the one for Token.eofSymbol
+     * @throws IOException if the program cannot be read
+     */
+    public static TokenStream read( LexicalAnalyser lex ) throws IOException {
+        TokenStream tokens = new TokenStream( lex.getFilename(), lex.getIdentifiers() );
+        int symbol;
+        do {
+            symbol = lex.nextSymbol();
+            tokens.add( lex );
+        } while( symbol != Token.eofSymbol );
+        tokens.characters = lex.getCharactersRead();
+        tokens.sourceSize = lex.getSourceSize();
+        return tokens;
+    }
+
+    /**
+     * Appends the token a lexical analyser last scanned, copying its text out of the
+     * analyser's buffer.  The analyser must number identifiers in this stream's table.
+     */
+    public void add( LexicalAnalyser lex ) {
+        int length = lex.getTokenLength();
+        if( textSize + length > text.length )
+            text = Arrays.copyOf( text, Math.max( text.length * 2, textSize + length ) );
+        lex.getTokenChars( text, textSize );
+        add( lex.getTokenSymbol(), lex.getTokenLine(), lex.getTokenId(), textSize, length );
+        textSize += length;
+    }
+
+    private void add( int symbol, int line, int id, int start, int length ) {
+        int chunk = size >>> CHUNK_BITS;
+        if( chunk == symbols.length ) {
+            symbols = Arrays.copyOf( symbols, chunk * 2 );
+            lines = Arrays.copyOf( lines, chunk * 2 );
+            starts = Arrays.copyOf( starts, chunk * 2 );
+            lengths = Arrays.copyOf( lengths, chunk * 2 );
+            ids = Arrays.copyOf( ids, chunk * 2 );
+        }
+        if( symbols[chunk] == null ) {
+            symbols[chunk] = new int[CHUNK];
+            lines[chunk] = new int[CHUNK];
+            starts[chunk] = new int[CHUNK];
+            lengths[chunk] = new int[CHUNK];
+            ids[chunk] = new int[CHUNK];
+        }
+        int i = size & MASK;
+        symbols[chunk][i] = symbol;
+        lines[chunk][i] = line;
+        starts[chunk][i] = start;
+        lengths[chunk][i] = length;
+        ids[chunk][i] = id;
+        size++;
+    }
+
+    public String getFilename() {
+        return name;
+    }
+
+    /** The table identifier numbers refer to. */
+    public Identifiers getIdentifiers() {
+        return identifiers;
+    }
+
+    /** The number of tokens. */
+    public int size() {
+        return size;
+    }
+
+    /** The symbol of token i, a class constant from Token. */
+    public int symbol( int i ) {
+        return symbols[i >>> CHUNK_BITS][i & MASK];
+    }
+
+    /** The line token i was found on. */
+    public int line( int i ) {
+        return lines[i >>> CHUNK_BITS][i & MASK];
+    }
+
+    /** The number of token i if it is an identifier, otherwise -1. */
+    public int id( int i ) {
+        return ids[i >>> CHUNK_BITS][i & MASK];
+    }
+
+    /** Where the text of token i starts in chars(). */
+    public int start( int i ) {
+        return starts[i >>> CHUNK_BITS][i & MASK];
+    }
+
+    /** The length of the text of token i. */
+    public int length( int i ) {
+        return lengths[i >>> CHUNK_BITS][i & MASK];
+    }
+
+    /** The buffer holding the text of every token. */
+    public char[] chars() {
+        return text;
+    }
+
+    /**
+     * The text of token i.  Reserved words and punctuation written as the grammar
+     * spells them share that spelling, and identifiers the copy kept for their number,
+     * rather than getting a string of their own.
+     */
+    public String text( int i ) {
+        int id = id( i );
+        if( id >= 0 )
+            return identifiers.name( id );
+        int start = start( i );
+        int length = length( i );
+        if( length == 0 )
+            return "";
+        String name = Token.getName( symbol( i ) );
+        if( name.length() == length ) {
+            int k = 0;
+            while( k < length && name.charAt( k ) == text[start + k] )
+                k++;
+            if( k == length )
+                return name;
+        }
+        return new String( text, start, length );
+    }
+
+    /**
+     * The bytes the arrays take up, less object headers.
+     */
+    public long memoryBytes() {
+        long chunks = 0;
+        for( int[] chunk : symbols )
+            if( chunk != null )
+                chunks++;
+        return chunks * 5L * CHUNK * Integer.BYTES + (long) text.length * Character.BYTES;
+    }
+
+    /**
+     * Reads the tokens from the first, through a single Token that each call
+     * overwrites.
+     */
+    public TokenSource cursor() {
+        return new TokenSource() {
+            private final Token token = new Token( Token.eofSymbol, "", 0 );
+            private int next;
+
+            public Token getNextToken() {
+                int i = (next < size) ? next++ : size - 1;
+                token.symbol = symbol( i );
+                token.text = text( i );
+                token.lineNumber = line( i );
+                token.id = id( i );
+                return token;
+            }
+
+            public String getFilename() {
+                return name;
+            }
+
+            public Identifiers getIdentifiers() {
+                return identifiers;
+            }
+
+            public long getCharactersRead() {
+                return characters;
+            }
+
+            public long getSourceSize() {
+                return sourceSize;
+            }
+        };
+    }
+}
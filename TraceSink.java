@@ -0,0 +1,55 @@
+import java.util.function.Supplier;
+
+/**
+ * Receives the rgg* trace events produced while checking a program.
+ *
+ * A code generator hands every event to its sink instead of printing it, so the
+ * driver decides whether the trace is written out in full, only counted, or dropped.
+ */
+public interface TraceSink {
+
+    /** A terminal has been accepted (rggTOKEN). */
+    void insertTerminal( Token token );
+
+    /** A nonterminal has been entered (rggBEGIN). */
+    void commenceNonterminal( String name );
+
+    /** A nonterminal has been completed (rggEND). */
+    void finishNonterminal( String name );
+
+    /** A variable has been declared (rggDECL). */
+    void addVariable( Variable v );
+
+    /** A variable has gone out of scope (rggDROP). */
+    void removeVariable( Variable v );
+
+    /** The program was accepted (rggSUCCESS). */
+    void reportSuccess();
+
+    /** The program was rejected (rggERROR). */
+    void reportError( String explanatoryMessage );
+
+    /** As above, for a message not built yet; sinks that ignore the text need never build it. */
+    default void reportError( Supplier<String> explanatoryMessage ) {
+        reportError( explanatoryMessage.get() );
+    }
+
+    /** A line of driver output such as rggSTART or rggFILE. */
+    void println( String line );
+
+    /**
+     * Returns a sink for the events of one file, which may be filled on another thread
+     * and is later handed back to {@link #join(TraceSink)}.  Sinks that are safe to share
+     * return themselves.
+     */
+    TraceSink fork();
+
+    /** Appends everything recorded by a sink obtained from {@link #fork()}. */
+    void join( TraceSink forked );
+
+    /** Pushes out anything buffered. */
+    void flush();
+
+    /** Ends the run: flushes, and writes any summary the sink keeps. */
+    void close();
+}
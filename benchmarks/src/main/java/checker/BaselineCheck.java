@@ -0,0 +1,103 @@
+package checker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a run of the benchmarks with the baseline, both saved by JMH as CSV
+ * (-rf csv), and fails if any benchmark has got slower by more than the tolerance.
+ *
+ * Usage: java -cp target/benchmarks.jar checker.BaselineCheck baseline.csv results.csv [percent]
+ * where percent defaults to 10.  Benchmarks missing from either file are listed but do
+ * not fail the check.
+ */
+public class BaselineCheck {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineCheck baseline.csv results.csv [percent]");
+            System.exit(2);
+        }
+        Map<String, double[]> baseline = read(Path.of(args[0]));
+        Map<String, double[]> results = read(Path.of(args[1]));
+        double tolerance = (args.length > 2 ? Double.parseDouble(args[2]) : 10) / 100;
+
+        int regressions = 0;
+        for (Map.Entry<String, double[]> e : results.entrySet()) {
+            double[] before = baseline.get(e.getKey());
+            if (before == null) {
+                System.out.println("new        " + e.getKey());
+                continue;
+            }
+            double[] after = e.getValue();
+            // scores are times, except in throughput mode where more is better
+            double change = after[1] > 0 ? (before[0] - after[0]) / before[0] : (after[0] - before[0]) / before[0];
+            boolean regressed = change > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %s %+.1f%%%n", regressed ? "SLOWER" : "ok", e.getKey(), change * 100);
+        }
+        for (String key : baseline.keySet()) {
+            if (!results.containsKey(key)) {
+                System.out.println("missing    " + key);
+            }
+        }
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * Reads a JMH CSV file.
+     *
+     * @return each benchmark, named with its parameters, to its score and whether that is
+     *         a throughput, 1, or a time, 0
+     */
+    private static Map<String, double[]> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        List<String> header = fields(lines.get(0));
+        int mode = header.indexOf("Mode");
+        int score = header.indexOf("Score");
+
+        Map<String, double[]> scores = new LinkedHashMap<String, double[]>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            List<String> f = fields(line);
+            StringBuilder key = new StringBuilder(f.get(0));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ") && !f.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(f.get(i));
+                }
+            }
+            double throughput = f.get(mode).equals("thrpt") ? 1 : 0;
+            scores.put(key.toString(), new double[] {Double.parseDouble(f.get(score)), throughput});
+        }
+        return scores;
+    }
+
+    /** Splits a CSV line, removing the quotes around fields. */
+    private static List<String> fields(String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,48 @@
+package checker;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scans a whole program with LexicalAnalyser.getNextToken, from source already in memory
+ * so the disk is kept out of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"small", "medium", "huge"})
+    String size;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Programs.sized(size);
+    }
+
+    @Benchmark
+    public int getNextToken() throws IOException {
+        LexicalAnalyser lex = new LexicalAnalyser("benchmark", source);
+        int tokens = 1;
+        while (lex.getNextToken().symbol != Token.eofSymbol) {
+            tokens++;
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,58 @@
+package checker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks a whole program, lexing included, with the trace dropped so only the parser
+ * and symbol table are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    private static final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    @Param({"small", "medium", "huge"})
+    String size;
+
+    @Param({"recursive", "table"})
+    String parser;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Programs.sized(size);
+        if (!SyntaxAnalyser.check("benchmark", source).isEmpty()) {
+            throw new IllegalStateException("benchmark program is rejected");
+        }
+    }
+
+    @Benchmark
+    public AbstractSyntaxAnalyser parse() throws IOException {
+        LexicalAnalyser lex = new LexicalAnalyser("benchmark", source);
+        AbstractSyntaxAnalyser syn = parser.equals("table")
+                ? new TableSyntaxAnalyser("benchmark", lex)
+                : new SyntaxAnalyser("benchmark", lex);
+        syn.parse(discard, NullTraceSink.INSTANCE);
+        return syn;
+    }
+}
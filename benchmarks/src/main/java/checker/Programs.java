@@ -0,0 +1,59 @@
+package checker;
+
+/**
+ * Programs of a chosen size for the benchmarks to check.  Every one is accepted, so a
+ * benchmark measures a full pass rather than how quickly the first error is found.
+ */
+final class Programs {
+    /** Blocks in a small, medium and huge program: about 20, 2000 and 200000 lines. */
+    private static final int SMALL = 1;
+    private static final int MEDIUM = 100;
+    private static final int HUGE = 10000;
+
+    private Programs() {
+    }
+
+    /**
+     * A program for a benchmark's size parameter.
+     *
+     * @param size small, medium or huge
+     */
+    static String sized(String size) {
+        switch (size) {
+            case "small":
+                return of(SMALL);
+            case "medium":
+                return of(MEDIUM);
+            case "huge":
+                return of(HUGE);
+            default:
+                throw new IllegalArgumentException("unknown size " + size);
+        }
+    }
+
+    /**
+     * A program of the given number of blocks, each using every kind of statement.
+     */
+    static String of(int blocks) {
+        StringBuilder program = new StringBuilder("begin\n    n0 := 1 ;\n    s0 := \"text\"");
+        for (int b = 0; b < blocks; b++) {
+            program.append(" ;\n")
+                    .append("    x").append(b).append(" := n0 * 3 + n0 * (n0 - 1) ;\n")
+                    .append("    while x").append(b).append(" > 0 loop\n")
+                    .append("        x").append(b).append(" := x").append(b).append(" - 1 ;\n")
+                    .append("        call put(x").append(b).append(", s0)\n")
+                    .append("    end loop ;\n")
+                    .append("    for ( i := 0 ; i < 10 ; i := i + 1 ) do\n")
+                    .append("        if i = 5 then\n")
+                    .append("            s1 := \"five\"\n")
+                    .append("        else\n")
+                    .append("            y := i / 2\n")
+                    .append("        end if\n")
+                    .append("    end loop ;\n")
+                    .append("    do\n")
+                    .append("        n0 := n0 + 1\n")
+                    .append("    until n0 >= 3");
+        }
+        return program.append("\nend\n").toString();
+    }
+}
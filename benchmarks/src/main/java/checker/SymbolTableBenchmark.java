@@ -0,0 +1,77 @@
+package checker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Declares and looks up many identifiers through Generate.addVariable and getVariable,
+ * looking them up both by name and, as the parsers do, by the number a token carries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymbolTableBenchmark {
+    @Param({"100", "10000"})
+    int identifiers;
+
+    private Variable[] variables;
+    private String[] names;
+    private Token[] tokens;
+    private Generate declared;
+
+    @Setup
+    public void setUp() {
+        variables = new Variable[identifiers];
+        names = new String[identifiers];
+        for (int i = 0; i < identifiers; i++) {
+            variables[i] = new Variable("v" + i, i % 2 == 0 ? Variable.Type.NUMBER : Variable.Type.STRING);
+            // a copy, as the lexer would give, so lookups cannot stop at reference equality
+            names[i] = new String(variables[i].identifier);
+        }
+        declared = addVariable();
+        tokens = new Token[identifiers];
+        for (int i = 0; i < identifiers; i++) {
+            tokens[i] = new Token(Token.identifier, names[i], 1);
+            tokens[i].id = declared.identifiers.find(names[i]);
+        }
+    }
+
+    @Benchmark
+    public Generate addVariable() {
+        Generate generate = new Generate();
+        generate.setSink(NullTraceSink.INSTANCE);
+        for (Variable v : variables) {
+            generate.addVariable(v);
+        }
+        return generate;
+    }
+
+    @Benchmark
+    public void getVariable(Blackhole bh) {
+        for (String name : names) {
+            bh.consume(declared.getVariable(name));
+        }
+    }
+
+    @Benchmark
+    public void getVariableByToken(Blackhole bh) {
+        for (Token token : tokens) {
+            bh.consume(declared.getVariable(token));
+        }
+    }
+}
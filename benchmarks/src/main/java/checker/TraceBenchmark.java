@@ -0,0 +1,71 @@
+package checker;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders the rgg* trace of one assignment statement through AbstractGenerate, as the
+ * text trace writes it, into a writer that drops it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceBenchmark {
+    private Generate generate;
+    private Token target;
+    private Token becomes;
+    private Token operand;
+    private Token plus;
+    private Token constant;
+    private Variable declared;
+
+    @Setup
+    public void setUp() {
+        generate = new Generate();
+        generate.setSink(new TextTraceSink(Writer.nullWriter()));
+        target = new Token(Token.identifier, "total", 12);
+        becomes = new Token(Token.becomesSymbol, ":=", 12);
+        operand = new Token(Token.identifier, "x1", 12);
+        plus = new Token(Token.plusSymbol, "+", 12);
+        constant = new Token(Token.numberConstant, "42", 12);
+        declared = new Variable("total", Variable.Type.NUMBER);
+    }
+
+    @Benchmark
+    public void assignment() {
+        generate.commenceNonterminal("Statement");
+        generate.commenceNonterminal("AssignmentStatement");
+        generate.insertTerminal(target);
+        generate.insertTerminal(becomes);
+        generate.commenceNonterminal("Expression");
+        generate.commenceNonterminal("Term");
+        generate.commenceNonterminal("Factor");
+        generate.insertTerminal(operand);
+        generate.finishNonterminal("Factor");
+        generate.finishNonterminal("Term");
+        generate.insertTerminal(plus);
+        generate.commenceNonterminal("Term");
+        generate.commenceNonterminal("Factor");
+        generate.insertTerminal(constant);
+        generate.finishNonterminal("Factor");
+        generate.finishNonterminal("Term");
+        generate.finishNonterminal("Expression");
+        generate.getSink().addVariable(declared);
+        generate.finishNonterminal("AssignmentStatement");
+        generate.finishNonterminal("Statement");
+    }
+}